@@ -0,0 +1,86 @@
+package com.bSHongbao.benchmark;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.md_5.bungee.api.chat.ComponentBuilder;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 红包公告广播基准测试
+ * 两种实现都只构建一次组件，再对每个接收者调用 sendMessage，由服务器逐个转换并编码；
+ * 这里按接收者数量重复序列化来模拟这部分开销，比较的是 BungeeCord 与 Adventure 两条实际发送路径
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BroadcastBenchmark {
+    private static final String MESSAGE = "§e玩家 §6Steve §e发了一个 §c拼手气红包§e！";
+    private static final String PACKET_ID = "0f8fad5b-d9cb-469f-a165-70867728950e";
+
+    @Param({"1", "50", "300", "1000"})
+    public int players;
+
+    @Benchmark
+    public void bungeePerRecipient(Blackhole blackhole) {
+        TextComponent mainMessage = new TextComponent(MESSAGE);
+        TextComponent clickableText = new TextComponent("[点击领取]");
+        clickableText.setColor(net.md_5.bungee.api.ChatColor.GREEN);
+        clickableText.setBold(true);
+        clickableText.setClickEvent(new net.md_5.bungee.api.chat.ClickEvent(
+                net.md_5.bungee.api.chat.ClickEvent.Action.RUN_COMMAND, "/bshongbao_claim " + PACKET_ID));
+        clickableText.setHoverEvent(new net.md_5.bungee.api.chat.HoverEvent(
+                net.md_5.bungee.api.chat.HoverEvent.Action.SHOW_TEXT,
+                new ComponentBuilder("点击领取红包\n")
+                        .color(net.md_5.bungee.api.ChatColor.YELLOW)
+                        .append("类型: 拼手气红包\n")
+                        .color(net.md_5.bungee.api.ChatColor.WHITE)
+                        .append("总金额: 1000.00\n")
+                        .color(net.md_5.bungee.api.ChatColor.WHITE)
+                        .append("总份数: 50\n")
+                        .color(net.md_5.bungee.api.ChatColor.WHITE)
+                        .append("剩余: 50 份")
+                        .color(net.md_5.bungee.api.ChatColor.GRAY)
+                        .create()));
+        TextComponent fullMessage = new TextComponent(mainMessage);
+        fullMessage.addExtra(clickableText);
+
+        // player.spigot().sendMessage 对每个接收者都重新序列化
+        for (int i = 0; i < players; i++) {
+            blackhole.consume(ComponentSerializer.toString(fullMessage));
+        }
+    }
+
+    @Benchmark
+    public void adventurePerRecipient(Blackhole blackhole) {
+        Component hover = Component.text()
+                .append(Component.text("点击领取红包\n", NamedTextColor.YELLOW))
+                .append(Component.text("类型: 拼手气红包\n", NamedTextColor.WHITE))
+                .append(Component.text("总金额: 1000.00\n", NamedTextColor.WHITE))
+                .append(Component.text("总份数: 50\n", NamedTextColor.WHITE))
+                .append(Component.text("剩余: 50 份", NamedTextColor.GRAY))
+                .build();
+        Component clickable = Component.text("[点击领取]", NamedTextColor.GREEN)
+                .decorate(TextDecoration.BOLD)
+                .clickEvent(ClickEvent.runCommand("/bshongbao_claim " + PACKET_ID))
+                .hoverEvent(HoverEvent.showText(hover));
+        Component announcement = LegacyComponentSerializer.legacySection().deserialize(MESSAGE).append(clickable);
+
+        // player.sendMessage 同样由服务器对每个接收者转换一次
+        for (int i = 0; i < players; i++) {
+            blackhole.consume(GsonComponentSerializer.gson().serialize(announcement));
+        }
+    }
+}
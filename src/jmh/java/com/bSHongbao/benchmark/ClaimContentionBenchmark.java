@@ -0,0 +1,108 @@
+package com.bSHongbao.benchmark;
+
+import com.bSHongbao.model.RedPacket;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 红包领取竞争基准测试
+ * 对比无锁领取与原 synchronized 领取在 1 / 8 / 32 线程下的吞吐量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClaimContentionBenchmark {
+    private static final int SHARES = ClaimHarness.SHARES;
+
+    /**
+     * 领取实现的最小抽象，便于两种实现共用同一套驱动逻辑
+     */
+    interface Claimable {
+        boolean claim(String playerId);
+    }
+
+    /**
+     * 原实现：整个 claim 方法持有同一把锁
+     */
+    static final class SynchronizedPacket implements Claimable {
+        private final List<BigDecimal> amounts;
+        private final Map<String, BigDecimal> claimedPlayers = new HashMap<>();
+
+        SynchronizedPacket(BigDecimal totalAmount, int totalCount) {
+            BigDecimal single = totalAmount.divide(BigDecimal.valueOf(totalCount), 2, RoundingMode.HALF_UP);
+            this.amounts = new ArrayList<>(Collections.nCopies(totalCount, single));
+        }
+
+        @Override
+        public synchronized boolean claim(String playerId) {
+            if (claimedPlayers.containsKey(playerId)) {
+                return false;
+            }
+            if (claimedPlayers.size() >= amounts.size()) {
+                return false;
+            }
+            BigDecimal amount = amounts.get(claimedPlayers.size());
+            claimedPlayers.put(playerId, amount);
+            return true;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedPacket {
+        @Param({"lockFree", "synchronized"})
+        public String impl;
+
+        final ClaimHarness.PacketSlot<Claimable> slot = new ClaimHarness.PacketSlot<>(this::newPacket);
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            slot.reset();
+        }
+
+        Claimable newPacket() {
+            long totalCents = SHARES * 1000L;
+            if ("synchronized".equals(impl)) {
+                return new SynchronizedPacket(BigDecimal.valueOf(totalCents, 2), SHARES);
+            }
+            RedPacket packet = new RedPacket("sender", "sender", RedPacket.RedPacketType.NORMAL, totalCents, SHARES, 60);
+            return playerId -> packet.claim(playerId) != RedPacket.NOT_CLAIMED;
+        }
+    }
+
+    private static boolean drive(SharedPacket shared, ClaimHarness.ThreadPlayers players) {
+        Claimable packet = shared.slot.get();
+        if (packet == null) {
+            // 其他线程正在替换已领完的红包
+            return false;
+        }
+        boolean claimed = packet.claim(players.nextId());
+        if (!claimed) {
+            shared.slot.replace(packet);
+        }
+        return claimed;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean claim_1_thread(SharedPacket shared, ClaimHarness.ThreadPlayers players) {
+        return drive(shared, players);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean claim_8_threads(SharedPacket shared, ClaimHarness.ThreadPlayers players) {
+        return drive(shared, players);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean claim_32_threads(SharedPacket shared, ClaimHarness.ThreadPlayers players) {
+        return drive(shared, players);
+    }
+}
@@ -0,0 +1,77 @@
+package com.bSHongbao.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 领取基准测试共用的驱动
+ * 共享红包槽与各线程的玩家 ID 池
+ */
+public final class ClaimHarness {
+    static final int SHARES = 4096;
+
+    private ClaimHarness() {
+    }
+
+    /**
+     * 共享红包槽：被领完后由第一个领取失败的线程替换为新红包
+     */
+    static final class PacketSlot<T> {
+        private final AtomicReference<T> current = new AtomicReference<>();
+        private final Supplier<T> factory;
+
+        PacketSlot(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * 放入新红包
+         */
+        void reset() {
+            current.set(factory.get());
+        }
+
+        /**
+         * 获取当前红包，其他线程正在替换时返回 null
+         */
+        T get() {
+            return current.get();
+        }
+
+        /**
+         * 领取失败后调用：只有抢到替换权的线程创建新红包，创建开销不会随线程数放大
+         */
+        void replace(T exhausted) {
+            if (current.compareAndSet(exhausted, null)) {
+                current.set(factory.get());
+            }
+        }
+    }
+
+    /**
+     * 每个线程各自的玩家 ID 池，线程之间互不重复
+     */
+    @State(Scope.Thread)
+    public static class ThreadPlayers {
+        String[] ids;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            String prefix = UUID.randomUUID().toString();
+            ids = new String[SHARES];
+            for (int i = 0; i < SHARES; i++) {
+                ids[i] = prefix + i;
+            }
+        }
+
+        String nextId() {
+            String id = ids[next];
+            next = (next + 1) % SHARES;
+            return id;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.bSHongbao.benchmark;
+
+import com.bSHongbao.model.RedPacket;
+import com.bSHongbao.storage.PacketJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 预写日志开销基准测试
+ * 对比开启日志与纯内存时的领取吞吐量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournaledClaimBenchmark {
+    private static final int SHARES = ClaimHarness.SHARES;
+
+    @State(Scope.Benchmark)
+    public static class Journal {
+        @Param({"false", "true"})
+        public boolean journaled;
+
+        final ClaimHarness.PacketSlot<RedPacket> slot = new ClaimHarness.PacketSlot<>(this::newPacket);
+        Path directory;
+        PacketJournal journal;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            if (journaled) {
+                directory = Files.createTempDirectory("bshongbao-journal");
+                journal = PacketJournal.open(directory.resolve("redpackets.journal"), Logger.getLogger("bench"),
+                        50, Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap());
+            }
+            slot.reset();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            if (journal != null) {
+                journal.close();
+                try (var files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+
+        RedPacket newPacket() {
+            RedPacket packet = new RedPacket("sender", "sender", RedPacket.RedPacketType.LUCKY, SHARES * 1000L, SHARES, 60);
+            if (journal != null) {
+                journal.appendCreate(packet);
+            }
+            return packet;
+        }
+    }
+
+    private static long drive(Journal state, ClaimHarness.ThreadPlayers players) {
+        RedPacket packet = state.slot.get();
+        if (packet == null) {
+            // 其他线程正在替换已领完的红包
+            return RedPacket.NOT_CLAIMED;
+        }
+        String playerId = players.nextId();
+        long amount = packet.claim(playerId);
+        if (amount == RedPacket.NOT_CLAIMED) {
+            state.slot.replace(packet);
+        } else if (state.journal != null) {
+            state.journal.appendClaim(packet.getId(), playerId, amount);
+        }
+        return amount;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long claim_1_thread(Journal state, ClaimHarness.ThreadPlayers players) {
+        return drive(state, players);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long claim_8_threads(Journal state, ClaimHarness.ThreadPlayers players) {
+        return drive(state, players);
+    }
+}
@@ -0,0 +1,115 @@
+package com.bSHongbao.benchmark;
+
+import com.bSHongbao.util.PlgColor;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 传统颜色代码转换基准测试
+ * 旧实现为 replace + replaceAll + 两次 Matcher 遍历，再交给 MiniMessage 解析；
+ * 新实现单次扫描直接构建组件，重复文本命中 LRU 缓存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LegacyTranscodeBenchmark {
+    private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
+    private static final Pattern HEX_PATTERN = Pattern.compile("&x(&[0-9A-Fa-f]){6}");
+
+    @Param({
+            "&a配置文件已重新加载！",
+            "&6[红包] &r&e玩家 &6Steve &e发了一个&c【拼手气红包】&f红包，&a&l[点击领取]",
+            "&#FF5555&l红包 &x&F&F&A&A&0&0金额 &712.34 &r&o剩余 3 份"
+    })
+    public String input;
+
+    @Benchmark
+    public String regexConvert() {
+        return legacyRegexConvert(input);
+    }
+
+    @Benchmark
+    public String singlePassConvert() {
+        return PlgColor.convertLegacyToMiniMessage(input);
+    }
+
+    @Benchmark
+    public Component regexConvertThenParse() {
+        return MINI_MESSAGE.deserialize(legacyRegexConvert(input));
+    }
+
+    @Benchmark
+    public Component directComponent() {
+        return PlgColor.toComponent(input);
+    }
+
+    @Benchmark
+    public Component cachedComponent() {
+        return PlgColor.toCachedComponent(input);
+    }
+
+    /**
+     * 旧版 PlgColor.convertLegacyToMiniMessage 的实现，作为对照
+     */
+    private static String legacyRegexConvert(String input) {
+        input = input.replace('§', '&');
+        input = input.replaceAll("&#([0-9A-Fa-f]{6})", "<#$1>");
+
+        StringBuffer sb = new StringBuffer();
+        Matcher hexMatcher = HEX_PATTERN.matcher(input);
+        while (hexMatcher.find()) {
+            String hexSeq = hexMatcher.group();
+            StringBuilder hex = new StringBuilder();
+            for (int i = 2; i < hexSeq.length(); i += 2) {
+                hex.append(hexSeq.charAt(i + 1));
+            }
+            hexMatcher.appendReplacement(sb, "<#" + hex + ">");
+        }
+        hexMatcher.appendTail(sb);
+
+        Pattern singlePattern = Pattern.compile("&([0-9a-fk-orA-FK-OR])");
+        Matcher singleMatcher = singlePattern.matcher(sb.toString());
+        sb = new StringBuffer();
+        while (singleMatcher.find()) {
+            char code = Character.toLowerCase(singleMatcher.group(1).charAt(0));
+            singleMatcher.appendReplacement(sb, "<" + tagName(code) + ">");
+        }
+        singleMatcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static String tagName(char code) {
+        switch (code) {
+            case '0': return "black";
+            case '1': return "dark_blue";
+            case '2': return "dark_green";
+            case '3': return "dark_aqua";
+            case '4': return "dark_red";
+            case '5': return "dark_purple";
+            case '6': return "gold";
+            case '7': return "gray";
+            case '8': return "dark_gray";
+            case '9': return "blue";
+            case 'a': return "green";
+            case 'b': return "aqua";
+            case 'c': return "red";
+            case 'd': return "light_purple";
+            case 'e': return "yellow";
+            case 'f': return "white";
+            case 'k': return "obfuscated";
+            case 'l': return "bold";
+            case 'm': return "strikethrough";
+            case 'n': return "underlined";
+            case 'o': return "italic";
+            default: return "reset";
+        }
+    }
+}
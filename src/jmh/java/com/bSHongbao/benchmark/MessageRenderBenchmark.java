@@ -0,0 +1,91 @@
+package com.bSHongbao.benchmark;
+
+import com.bSHongbao.manager.ConfigSnapshot;
+import com.bSHongbao.manager.Message;
+import com.bSHongbao.util.MessageTemplate;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息渲染基准测试
+ * 旧实现对整条消息逐个 String.replace，新实现一次遍历预编译模板；
+ * config* 基准通过随插件发布的 config.yml 加载的配置快照渲染，与插件内的调用方式相同
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageRenderBenchmark {
+    private static final String PREFIX = "§6[红包] §r";
+    private static final String CLAIMED = "§e{claimer} §f领了 §e{sender} §f的§c【{type}】§f红包，金额 §a{amount}";
+    private static final String DIGEST =
+            "§e{claimers} §f共 §e{count} §f人领了 §e{sender} §f的§c【{type}】§f红包，合计 §a{amount}§f，剩余 §e{remaining} §f份";
+
+    private MessageTemplate claimedTemplate;
+    private MessageTemplate digestTemplate;
+    private ConfigSnapshot config;
+
+    @Setup
+    public void setup() throws IOException {
+        try (Reader reader = new InputStreamReader(
+                MessageRenderBenchmark.class.getResourceAsStream("/config.yml"), StandardCharsets.UTF_8)) {
+            config = ConfigSnapshot.load(YamlConfiguration.loadConfiguration(reader));
+        }
+        claimedTemplate = MessageTemplate.compile(CLAIMED, "{claimer}", "{sender}", "{type}", "{amount}");
+        digestTemplate = MessageTemplate.compile(DIGEST,
+                "{claimers}", "{count}", "{sender}", "{type}", "{amount}", "{remaining}");
+    }
+
+    @Benchmark
+    public String claimedChainedReplace() {
+        return PREFIX + CLAIMED
+                .replace("{claimer}", "Alex")
+                .replace("{sender}", "Steve")
+                .replace("{type}", "拼手气红包")
+                .replace("{amount}", "12.34");
+    }
+
+    @Benchmark
+    public String claimedTemplate() {
+        return claimedTemplate.renderWithPrefix(PREFIX, "Alex", "Steve", "拼手气红包", "12.34");
+    }
+
+    @Benchmark
+    public String digestChainedReplace() {
+        return PREFIX + DIGEST
+                .replace("{claimers}", "Alex、Notch、Herobrine")
+                .replace("{count}", String.valueOf(3))
+                .replace("{sender}", "Steve")
+                .replace("{type}", "拼手气红包")
+                .replace("{amount}", "37.02")
+                .replace("{remaining}", String.valueOf(47));
+    }
+
+    @Benchmark
+    public String digestTemplate() {
+        return digestTemplate.renderWithPrefix(PREFIX, "Alex、Notch、Herobrine", 3, "Steve", "拼手气红包", "37.02", 47);
+    }
+
+    @Benchmark
+    public String configFormatClaimed() {
+        return config.format(Message.PACKET_CLAIMED_BROADCAST, "Alex", "Steve", "拼手气红包", "12.34");
+    }
+
+    @Benchmark
+    public String configFormatDigest() {
+        return config.format(Message.PACKET_CLAIMED_DIGEST, "Alex、Notch、Herobrine", 3, "Steve", "拼手气红包", "37.02", 47);
+    }
+
+    @Benchmark
+    public String configFormatNoPlaceholders() {
+        return config.format(Message.RELOAD_SUCCESS);
+    }
+}
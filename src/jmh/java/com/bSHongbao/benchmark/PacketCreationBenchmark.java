@@ -0,0 +1,32 @@
+package com.bSHongbao.benchmark;
+
+import com.bSHongbao.model.RedPacket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 红包创建基准测试
+ * 预生成模式的创建开销随份数线性增长，按需生成模式应基本保持不变
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketCreationBenchmark {
+    @Param({"NORMAL", "LUCKY"})
+    public RedPacket.RedPacketType type;
+
+    @Param({"10", "100", "10000", "100000"})
+    public int count;
+
+    @Param({"false", "true"})
+    public boolean lazyShares;
+
+    @Benchmark
+    public RedPacket create() {
+        return new RedPacket("sender", "sender", type, count * 1000L, count, 5, lazyShares);
+    }
+}
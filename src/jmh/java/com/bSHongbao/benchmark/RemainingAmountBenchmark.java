@@ -0,0 +1,50 @@
+package com.bSHongbao.benchmark;
+
+import com.bSHongbao.model.RedPacket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 剩余金额查询基准测试
+ * 广播悬停提示与 info 命令都会读取剩余金额，开销应与份数和领取进度无关
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RemainingAmountBenchmark {
+    private static final int SHARES = 10000;
+
+    @Param({"NORMAL", "LUCKY"})
+    public RedPacket.RedPacketType type;
+
+    @Param({"false", "true"})
+    public boolean lazyShares;
+
+    @Param({"0", "50", "99"})
+    public int claimedPercent;
+
+    private RedPacket packet;
+
+    @Setup
+    public void setup() {
+        packet = new RedPacket("sender", "sender", type, SHARES * 1000L, SHARES, 5, lazyShares);
+        int claims = SHARES * claimedPercent / 100;
+        for (int i = 0; i < claims; i++) {
+            packet.claim("player-" + i);
+        }
+    }
+
+    @Benchmark
+    public long getRemainingAmount() {
+        return packet.getRemainingAmount();
+    }
+
+    @Benchmark
+    public int getRemainingCount() {
+        return packet.getRemainingCount();
+    }
+}
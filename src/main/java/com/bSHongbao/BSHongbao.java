@@ -1,14 +1,24 @@
 package com.bSHongbao;
 
+import com.bSHongbao.api.RedPacketService;
 import com.bSHongbao.command.RedPacketCommand;
 import com.bSHongbao.listener.PlayerListener;
 import com.bSHongbao.manager.*;
 import com.bSHongbao.gui.RedPacketGUI;
+import com.bSHongbao.metrics.MetricsExporter;
+import com.bSHongbao.metrics.PluginMetrics;
+import com.bSHongbao.storage.AuditLog;
 import com.bSHongbao.task.RedPacketTask;
 import com.bSHongbao.util.PlgColor;
 import net.milkbowl.vault.economy.Economy;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.RegisteredServiceProvider;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
 
 public final class BSHongbao extends JavaPlugin {
     
@@ -18,6 +28,10 @@ public final class BSHongbao extends JavaPlugin {
     private RedPacketManager redPacketManager;
     private ChatManager chatManager;
     private RedPacketGUI redPacketGUI;
+    private RedPacketService redPacketService;
+    private AuditLog auditLog;
+    private PluginMetrics metrics;
+    private MetricsExporter metricsExporter;
     
     // 任务实例
     private RedPacketTask redPacketTask;
@@ -25,6 +39,16 @@ public final class BSHongbao extends JavaPlugin {
     // Vault Economy
     private Economy economy;
 
+    public BSHongbao() {
+    }
+
+    /**
+     * 不经过插件类加载器创建插件，仅供负载模拟使用
+     */
+    BSHongbao(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
+
     @Override
     public void onEnable() {
         // 检查Vault插件
@@ -44,12 +68,21 @@ public final class BSHongbao extends JavaPlugin {
 
         PlgColor.init(this);
 
+        // 审计日志先于其他管理器打开，恢复与创建过程中的记录都能写入
+        auditLog = openAuditLog();
+        // 指标先于管理器创建，管理器在构造时取用其中的直方图
+        metrics = new PluginMetrics(this);
+        
         // 初始化其他管理器
         economyManager = new EconomyManager(this);
         redPacketManager = new RedPacketManager(this);
         chatManager = new ChatManager(this);
         redPacketGUI = new RedPacketGUI(this);
         
+        // 注册红包服务，供其他插件创建红包
+        redPacketService = new RedPacketServiceImpl(this);
+        getServer().getServicesManager().register(RedPacketService.class, redPacketService, this, ServicePriority.Normal);
+        
         // 注册命令
         RedPacketCommand commandExecutor = new RedPacketCommand(this);
         getCommand("BSHongbao").setExecutor(commandExecutor);
@@ -61,6 +94,7 @@ public final class BSHongbao extends JavaPlugin {
         // 启动定时任务
         redPacketTask = new RedPacketTask(this);
         redPacketTask.start();
+        metricsExporter = startMetricsExporter();
         
         getLogger().info("BSHongbao 插件已启用！版本: " + getDescription().getVersion());
         
@@ -71,6 +105,9 @@ public final class BSHongbao extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // 不再接受其他插件的创建请求
+        getServer().getServicesManager().unregisterAll(this);
+        
         // 停止定时任务
         if (redPacketTask != null) {
             redPacketTask.stop();
@@ -81,6 +118,20 @@ public final class BSHongbao extends JavaPlugin {
             redPacketManager.processAllRefunds();
         }
         
+        // 发放尚未完成的异步存款，再关闭日志
+        if (economyManager != null) {
+            economyManager.shutdown();
+        }
+        if (redPacketManager != null) {
+            redPacketManager.closeJournal();
+        }
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        if (metricsExporter != null) {
+            metricsExporter.close();
+        }
+        
         // 清理GUI会话
         if (redPacketGUI != null) {
             redPacketGUI.clearAllSessions();
@@ -89,6 +140,44 @@ public final class BSHongbao extends JavaPlugin {
         getLogger().info("BSHongbao 插件已禁用！");
     }
     
+    /**
+     * 打开审计日志，失败或未启用时返回不写文件的实例
+     */
+    private AuditLog openAuditLog() {
+        if (!configManager.isAuditEnabled()) {
+            return AuditLog.disabled(getLogger());
+        }
+        
+        File directory = new File(getDataFolder(), "audit");
+        try {
+            return AuditLog.open(directory.toPath(), getLogger(),
+                    configManager.getAuditMaxFileBytes(), configManager.getAuditMaxArchives());
+        } catch (IOException e) {
+            getLogger().severe("Failed to open audit log in " + directory + ": " + e.getMessage());
+            return AuditLog.disabled(getLogger());
+        }
+    }
+    
+    /**
+     * 启动指标文件导出，未启用或目录无法创建时返回 null
+     */
+    private MetricsExporter startMetricsExporter() {
+        if (!configManager.isMetricsEnabled()) {
+            return null;
+        }
+        
+        File file = new File(getDataFolder(), configManager.getMetricsFile());
+        MetricsExporter exporter = new MetricsExporter(metrics.getRegistry(), file.toPath(),
+                configManager.getMetricsExportIntervalSeconds(), getLogger());
+        try {
+            exporter.start();
+            return exporter;
+        } catch (IOException e) {
+            getLogger().severe("Failed to start metrics export to " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * 设置Vault经济系统
      */
@@ -127,6 +216,18 @@ public final class BSHongbao extends JavaPlugin {
         return redPacketGUI;
     }
     
+    public RedPacketService getRedPacketService() {
+        return redPacketService;
+    }
+    
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+    
+    public PluginMetrics getMetrics() {
+        return metrics;
+    }
+    
     public Economy getEconomy() {
         return economy;
     }
@@ -0,0 +1,33 @@
+package com.bSHongbao.api;
+
+/**
+ * 红包创建失败
+ * Red Packet Creation Failure
+ * <p>
+ * 由 {@link RedPacketService} 返回的 CompletableFuture 以该异常异常完成；失败时不会扣款，
+ * 也不会创建任何红包。
+ */
+public class RedPacketCreationException extends RuntimeException {
+    /**
+     * 失败原因
+     */
+    public enum Reason {
+        /** 金额或份数不符合配置限制 */
+        INVALID_REQUEST,
+        /** 经济系统不可用 */
+        ECONOMY_DISABLED,
+        /** 扣款失败（通常是余额不足） */
+        INSUFFICIENT_FUNDS
+    }
+
+    private final Reason reason;
+
+    public RedPacketCreationException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,38 @@
+package com.bSHongbao.api;
+
+import com.bSHongbao.model.RedPacket;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 红包服务
+ * Red Packet Service
+ * <p>
+ * 供其他插件创建红包，通过 Bukkit 的 ServicesManager 获取：
+ * <pre>{@code
+ * RedPacketService service = Bukkit.getServicesManager().load(RedPacketService.class);
+ * service.createPackets(player, specs).thenAccept(packets -> ...);
+ * }</pre>
+ * 红包金额从发送者账户扣除并托管，过期未领完的部分退还给发送者，与玩家通过界面创建的红包相同。
+ * 方法可在任意线程调用，不会阻塞；返回的 future 通常在发送者所在的区域线程上完成。
+ * 失败时以 {@link RedPacketCreationException}（可能包装在 CompletionException 中）异常完成。
+ */
+public interface RedPacketService {
+    /**
+     * 创建一个红包并广播
+     *
+     * @param sender 发送者，金额从其账户扣除
+     */
+    CompletableFuture<RedPacket> createPacket(Player sender, RedPacketSpec spec);
+
+    /**
+     * 批量创建红包：合计金额一次扣款，所有红包一次写入索引，并合并为一条广播
+     * 任一参数不合法时整批拒绝，不扣款
+     *
+     * @param sender 发送者，金额从其账户扣除
+     * @return 创建的红包，顺序与 specs 相同
+     */
+    CompletableFuture<List<RedPacket>> createPackets(Player sender, List<RedPacketSpec> specs);
+}
@@ -0,0 +1,19 @@
+package com.bSHongbao.api;
+
+import com.bSHongbao.model.RedPacket;
+
+import java.util.Objects;
+
+/**
+ * 待创建红包的参数
+ * Red Packet Specification
+ *
+ * @param type        红包类型
+ * @param totalAmount 总金额（分）
+ * @param count       份数
+ */
+public record RedPacketSpec(RedPacket.RedPacketType type, long totalAmount, int count) {
+    public RedPacketSpec {
+        Objects.requireNonNull(type, "type");
+    }
+}
@@ -1,6 +1,16 @@
 package com.bSHongbao.command;
 
 import com.bSHongbao.BSHongbao;
+import com.bSHongbao.manager.ClaimRateLimiter;
+import com.bSHongbao.manager.EconomyDispatcher;
+import com.bSHongbao.manager.EconomyManager;
+import com.bSHongbao.manager.Message;
+import com.bSHongbao.metrics.ClaimTrace;
+import com.bSHongbao.metrics.ClaimTracer;
+import com.bSHongbao.metrics.PluginMetrics;
+import com.bSHongbao.storage.AuditLog;
+import com.bSHongbao.util.Money;
+import com.bSHongbao.util.PacketIds;
 import com.bSHongbao.util.PlgColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -9,15 +19,26 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * 红包命令处理器
  * Red Packet Command Handler
  */
 public class RedPacketCommand implements CommandExecutor, TabCompleter {
+    private static final int AUDIT_DEFAULT_LIMIT = 10;
+    private static final int AUDIT_MAX_LIMIT = 100;
+    private static final int TRACES_DEFAULT_LIMIT = 10;
+    private static final int TRACES_MAX_LIMIT = 50;
+    private static final DateTimeFormatter AUDIT_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    
     private final BSHongbao plugin;
     
     public RedPacketCommand(BSHongbao plugin) {
@@ -37,13 +58,13 @@ public class RedPacketCommand implements CommandExecutor, TabCompleter {
         
         // 检查权限
         if (!player.hasPermission("bshongbao.use")) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.no-permission"));
+            player.sendMessage(plugin.getConfigManager().format(Message.NO_PERMISSION));
             return true;
         }
         
         // 检查经济系统
         if (!plugin.getEconomyManager().isEconomyEnabled()) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.no-permission").replace("您没有权限使用此命令！", "经济系统未启用！"));
+            player.sendMessage(plugin.getConfigManager().format(Message.ECONOMY_DISABLED));
             return true;
         }
         
@@ -65,6 +86,15 @@ public class RedPacketCommand implements CommandExecutor, TabCompleter {
             case "info":
                 handleInfoCommand(player);
                 break;
+            case "audit":
+                handleAuditCommand(player, args);
+                break;
+            case "metrics":
+                handleMetricsCommand(player);
+                break;
+            case "traces":
+                handleTracesCommand(player, args);
+                break;
             case "help":
                 sendHelpMessage(player);
                 break;
@@ -92,19 +122,20 @@ public class RedPacketCommand implements CommandExecutor, TabCompleter {
      */
     private void handleReloadCommand(Player player) {
         if (!player.hasPermission("bshongbao.admin")) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.no-permission"));
+            player.sendMessage(plugin.getConfigManager().format(Message.NO_PERMISSION));
             return;
         }
         
         try {
             plugin.getConfigManager().reloadConfig();
+            plugin.getChatManager().reload();
             //player.sendMessage(plugin.getConfigManager().getMessage("messages.success.packet-created").replace("成功创建红包！", "配置文件重载成功！"));
-            PlgColor.sendPrefixedMessage(player, PlgColor.convertLegacyToMiniMessage(plugin.getConfigManager().getRawMessage("messages.success.reload-success")));
+            PlgColor.sendPrefixedMessage(player, plugin.getConfigManager().formatRaw(Message.RELOAD_SUCCESS));
 
             plugin.getLogger().info( player.getName()+"重载了配置文件");
         } catch (Exception e) {
             //player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.invalid-amount").replace("请输入有效的金额！", "配置文件重载失败！"));
-            PlgColor.sendPrefixedMessage(player, PlgColor.convertLegacyToMiniMessage(plugin.getConfigManager().getRawMessage("messages.errors.reload-error")));
+            PlgColor.sendPrefixedMessage(player, plugin.getConfigManager().formatRaw(Message.RELOAD_ERROR));
             plugin.getLogger().warning("Failed to reload configuration: " + e.getMessage());
         }
     }
@@ -114,18 +145,162 @@ public class RedPacketCommand implements CommandExecutor, TabCompleter {
      */
     private void handleInfoCommand(Player player) {
         if (!player.hasPermission("bshongbao.admin")) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.no-permission"));
+            player.sendMessage(plugin.getConfigManager().format(Message.NO_PERMISSION));
             return;
         }
         
         int activePackets = plugin.getRedPacketManager().getActivePacketCount();
-        int pendingRefunds = plugin.getRedPacketManager().getPendingRefundCount(player.getUniqueId().toString());
+        int pendingRefunds = plugin.getRedPacketManager().getPendingRefundCount(player.getUniqueId());
         
         player.sendMessage(plugin.getConfigManager().getPrefix() + "§e=== 红包系统信息 ===");
         player.sendMessage(plugin.getConfigManager().getPrefix() + "§7活跃红包数量: §a" + activePackets);
         player.sendMessage(plugin.getConfigManager().getPrefix() + "§7您的待退款数量: §a" + pendingRefunds);
         player.sendMessage(plugin.getConfigManager().getPrefix() + "§7插件版本: §a" + plugin.getDescription().getVersion());
         player.sendMessage(plugin.getConfigManager().getPrefix() + "§7经济系统: §a" + (plugin.getEconomyManager().isEconomyEnabled() ? "已启用" : "未启用"));
+        
+        EconomyManager.VaultCallStats deposits = plugin.getEconomyManager().getDepositStats();
+        EconomyManager.VaultCallStats withdrawals = plugin.getEconomyManager().getWithdrawStats();
+        EconomyDispatcher dispatcher = plugin.getEconomyManager().getDispatcher();
+        player.sendMessage(plugin.getConfigManager().getPrefix() + "§7经济调用: §a" + (dispatcher.isAsync() ? "异步" : "同步")
+                + " §7合并存款: §a" + dispatcher.getCoalescedDeposits() + "/" + dispatcher.getDepositRequests());
+        player.sendMessage(plugin.getConfigManager().getPrefix() + formatVaultStats("存款", deposits));
+        player.sendMessage(plugin.getConfigManager().getPrefix() + formatVaultStats("扣款", withdrawals));
+        
+        ClaimRateLimiter limiter = plugin.getChatManager().getClaimRateLimiter();
+        player.sendMessage(plugin.getConfigManager().getPrefix() + "§7拒绝领取: §a超速 " + limiter.getRateLimitedCount()
+                + " §7重复 §a" + limiter.getInFlightRejectedCount());
+        
+        AuditLog auditLog = plugin.getAuditLog();
+        player.sendMessage(plugin.getConfigManager().getPrefix() + "§7审计日志: §a" + (auditLog.isEnabled() ? "已启用" : "未启用")
+                + " §7已写入 §a" + auditLog.getWrittenCount() + " §7丢弃 §a" + auditLog.getDroppedCount());
+    }
+    
+    /**
+     * 处理audit命令
+     * /BSHongbao audit [tail] [数量] | audit player <玩家名或UUID> [数量] | audit packet <红包ID> [数量]
+     */
+    private void handleAuditCommand(Player player, String[] args) {
+        if (!player.hasPermission("bshongbao.admin")) {
+            player.sendMessage(plugin.getConfigManager().format(Message.NO_PERMISSION));
+            return;
+        }
+        
+        Predicate<AuditLog.Entry> filter = entry -> true;
+        int limitIndex = 1;
+        String mode = args.length >= 2 ? args[1].toLowerCase() : "tail";
+        if (mode.equals("player") && args.length >= 3) {
+            String query = args[2];
+            filter = entry -> entry.playerName().equalsIgnoreCase(query) || entry.playerId().equalsIgnoreCase(query);
+            limitIndex = 3;
+        } else if (mode.equals("packet") && args.length >= 3) {
+            long packetId = PacketIds.decode(args[2]);
+            if (packetId < 0) {
+                player.sendMessage(plugin.getConfigManager().getPrefix() + "§c无效的红包ID: " + args[2]);
+                return;
+            }
+            filter = entry -> entry.packetId() == packetId;
+            limitIndex = 3;
+        } else if (mode.equals("tail")) {
+            limitIndex = 2;
+        }
+        
+        int limit = AUDIT_DEFAULT_LIMIT;
+        if (args.length > limitIndex) {
+            try {
+                limit = Math.max(1, Math.min(AUDIT_MAX_LIMIT, Integer.parseInt(args[limitIndex])));
+            } catch (NumberFormatException e) {
+                player.sendMessage(plugin.getConfigManager().getPrefix() + "§c无效的数量: " + args[limitIndex]);
+                return;
+            }
+        }
+        
+        List<AuditLog.Entry> entries = plugin.getAuditLog().search(filter, limit);
+        player.sendMessage(plugin.getConfigManager().getPrefix() + "§e=== 审计记录 (" + entries.size() + ") ===");
+        if (entries.isEmpty()) {
+            player.sendMessage(plugin.getConfigManager().getPrefix() + "§7没有匹配的记录");
+            return;
+        }
+        // 查询结果最新的在前，按时间顺序显示
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            player.sendMessage(plugin.getConfigManager().getPrefix() + formatAuditEntry(entries.get(i)));
+        }
+    }
+    
+    /**
+     * 处理metrics命令
+     */
+    private void handleMetricsCommand(Player player) {
+        if (!player.hasPermission("bshongbao.admin")) {
+            player.sendMessage(plugin.getConfigManager().format(Message.NO_PERMISSION));
+            return;
+        }
+        
+        player.sendMessage(plugin.getConfigManager().getPrefix() + "§e=== 红包系统指标 ===");
+        for (String line : plugin.getMetrics().getRegistry().summarize(PluginMetrics.PREFIX)) {
+            player.sendMessage(plugin.getConfigManager().getPrefix() + "§7" + line);
+        }
+    }
+    
+    /**
+     * 处理traces命令
+     * /BSHongbao traces [数量]
+     */
+    private void handleTracesCommand(Player player, String[] args) {
+        if (!player.hasPermission("bshongbao.admin")) {
+            player.sendMessage(plugin.getConfigManager().format(Message.NO_PERMISSION));
+            return;
+        }
+        
+        int limit = TRACES_DEFAULT_LIMIT;
+        if (args.length >= 2) {
+            try {
+                limit = Math.max(1, Math.min(TRACES_MAX_LIMIT, Integer.parseInt(args[1])));
+            } catch (NumberFormatException e) {
+                player.sendMessage(plugin.getConfigManager().getPrefix() + "§c无效的数量: " + args[1]);
+                return;
+            }
+        }
+        
+        ClaimTracer tracer = plugin.getChatManager().getClaimTracer();
+        player.sendMessage(plugin.getConfigManager().getPrefix() + String.format("§e=== 领取追踪 (采样 %.1f%%, 已记录 %d, 慢领取 %d) ===",
+                tracer.getSampleRate() * 100, tracer.getRecordedCount(), tracer.getSlowClaimCount()));
+        List<ClaimTrace> traces = tracer.recent(limit);
+        if (traces.isEmpty()) {
+            player.sendMessage(plugin.getConfigManager().getPrefix() + "§7没有追踪记录");
+            return;
+        }
+        // 最新的在前，按时间顺序显示
+        for (int i = traces.size() - 1; i >= 0; i--) {
+            ClaimTrace trace = traces.get(i);
+            player.sendMessage(plugin.getConfigManager().getPrefix() + String.format("§7%s §f%s §7%s §a%.2fms §e%s §7%s",
+                    AUDIT_TIME_FORMAT.format(Instant.ofEpochMilli(trace.getStartMillis())),
+                    trace.getPlayerName(),
+                    trace.getPacketId() < 0 ? "-" : PacketIds.encode(trace.getPacketId()),
+                    trace.getTotalNanos() / 1_000_000.0,
+                    trace.getOutcome(),
+                    trace.formatStages()));
+        }
+    }
+    
+    /**
+     * 格式化审计记录
+     */
+    private String formatAuditEntry(AuditLog.Entry entry) {
+        return String.format("§7%s §e%s §f%s §a%s §7%s %s",
+                AUDIT_TIME_FORMAT.format(Instant.ofEpochMilli(entry.timeMillis())),
+                entry.type(),
+                entry.playerName(),
+                Money.format(entry.amount()),
+                entry.packetId() == 0 ? "-" : PacketIds.encode(entry.packetId()),
+                entry.detail() == null ? "" : entry.detail());
+    }
+    
+    /**
+     * 格式化 Vault 调用统计
+     */
+    private String formatVaultStats(String label, EconomyManager.VaultCallStats stats) {
+        return String.format("§7%s: §a%d次 §7失败 §a%d §7平均 §a%.2fms §7最大 §a%.2fms §7吞吐 §a%.2f/s",
+                label, stats.getCalls(), stats.getFailures(), stats.getAverageMillis(), stats.getMaxMillis(), stats.getCallsPerSecond());
     }
     
     /**
@@ -140,6 +315,9 @@ public class RedPacketCommand implements CommandExecutor, TabCompleter {
             player.sendMessage(plugin.getConfigManager().getPrefix() + "§c=== 管理员命令 ===");
             player.sendMessage(plugin.getConfigManager().getPrefix() + "§7/BSHongbao reload §f- 重载配置文件");
             player.sendMessage(plugin.getConfigManager().getPrefix() + "§7/BSHongbao info §f- 查看系统信息");
+            player.sendMessage(plugin.getConfigManager().getPrefix() + "§7/BSHongbao audit [player <玩家>|packet <红包ID>] [数量] §f- 查看审计记录");
+            player.sendMessage(plugin.getConfigManager().getPrefix() + "§7/BSHongbao metrics §f- 查看运行指标");
+            player.sendMessage(plugin.getConfigManager().getPrefix() + "§7/BSHongbao traces [数量] §f- 查看领取分阶段耗时");
         }
     }
     
@@ -152,7 +330,7 @@ public class RedPacketCommand implements CommandExecutor, TabCompleter {
             
             // 添加管理员命令
             if (sender.hasPermission("bshongbao.admin")) {
-                subCommands = Arrays.asList("open", "help", "reload", "info");
+                subCommands = Arrays.asList("open", "help", "reload", "info", "audit", "metrics", "traces");
             }
             
             String input = args[0].toLowerCase();
@@ -161,6 +339,13 @@ public class RedPacketCommand implements CommandExecutor, TabCompleter {
                     completions.add(subCommand);
                 }
             }
+        } else if (args.length == 2 && "audit".equalsIgnoreCase(args[0]) && sender.hasPermission("bshongbao.admin")) {
+            String input = args[1].toLowerCase();
+            for (String mode : Arrays.asList("tail", "player", "packet")) {
+                if (mode.startsWith(input)) {
+                    completions.add(mode);
+                }
+            }
         }
         
         return completions;
@@ -0,0 +1,83 @@
+package com.bSHongbao.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 红包创建会话存储
+ * Creation Session Store
+ * <p>
+ * 异步聊天线程读取、区域线程写入，读取不加锁；会话按截止时间进入到期队列，
+ * 由定时任务批量清理，开销与到期数量成正比。
+ */
+public class CreationSessionStore {
+    private final ConcurrentHashMap<UUID, RedPacketCreationSession> sessions = new ConcurrentHashMap<>();
+    private final DelayQueue<SessionDeadline> deadlines = new DelayQueue<>();
+
+    /**
+     * 获取玩家的会话（无锁）
+     */
+    public RedPacketCreationSession get(UUID playerId) {
+        return sessions.get(playerId);
+    }
+
+    /**
+     * 保存会话，替换玩家原有的会话
+     */
+    public void put(UUID playerId, RedPacketCreationSession session) {
+        sessions.put(playerId, session);
+        deadlines.offer(new SessionDeadline(playerId, session, session.getDeadline()));
+    }
+
+    /**
+     * 移除玩家的会话；到期队列中的条目在到期时自然丢弃
+     */
+    public RedPacketCreationSession remove(UUID playerId) {
+        return sessions.remove(playerId);
+    }
+
+    /**
+     * 取出所有已到期的会话
+     *
+     * @return 会话被清理的玩家；到期前已结束或被新会话替换的不计入
+     */
+    public List<UUID> purgeExpired() {
+        List<UUID> expired = new ArrayList<>();
+        SessionDeadline deadline;
+        while ((deadline = deadlines.poll()) != null) {
+            if (sessions.remove(deadline.playerId(), deadline.session())) {
+                expired.add(deadline.playerId());
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public void clear() {
+        sessions.clear();
+        deadlines.clear();
+    }
+
+    /**
+     * 到期队列条目
+     */
+    private record SessionDeadline(UUID playerId, RedPacketCreationSession session, long deadlineMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineMillis, ((SessionDeadline) other).deadlineMillis);
+        }
+    }
+}
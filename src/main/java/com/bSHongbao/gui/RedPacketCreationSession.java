@@ -2,8 +2,6 @@ package com.bSHongbao.gui;
 
 import com.bSHongbao.model.RedPacket;
 
-import java.math.BigDecimal;
-
 /**
  * 红包创建会话
  * Red Packet Creation Session
@@ -11,12 +9,17 @@ import java.math.BigDecimal;
 public class RedPacketCreationSession {
     private final RedPacket.RedPacketType type;
     private final long createTime;
-    private Step step;
-    private BigDecimal amount;
+    private final long deadline;
+    private volatile Step step;
+    private volatile long amount;
     
-    public RedPacketCreationSession(RedPacket.RedPacketType type) {
+    /**
+     * @param timeoutMillis 会话有效时长（毫秒）
+     */
+    public RedPacketCreationSession(RedPacket.RedPacketType type, long timeoutMillis) {
         this.type = type;
         this.createTime = System.currentTimeMillis();
+        this.deadline = createTime + timeoutMillis;
         this.step = Step.WAITING_FOR_AMOUNT;
     }
     
@@ -38,6 +41,13 @@ public class RedPacketCreationSession {
         return createTime;
     }
     
+    /**
+     * 获取会话截止时间（毫秒时间戳）
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+    
     public Step getStep() {
         return step;
     }
@@ -46,18 +56,21 @@ public class RedPacketCreationSession {
         this.step = step;
     }
     
-    public BigDecimal getAmount() {
+    /**
+     * 获取总金额（分）
+     */
+    public long getAmount() {
         return amount;
     }
     
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
     
     /**
-     * 检查会话是否过期（5分钟）
+     * 检查会话是否过期
      */
     public boolean isExpired() {
-        return System.currentTimeMillis() - createTime > 5 * 60 * 1000;
+        return System.currentTimeMillis() > deadline;
     }
 }
\ No newline at end of file
@@ -1,7 +1,13 @@
 package com.bSHongbao.gui;
 
 import com.bSHongbao.BSHongbao;
+import com.bSHongbao.api.RedPacketCreationException;
+import com.bSHongbao.api.RedPacketSpec;
+import com.bSHongbao.manager.ConfigSnapshot;
+import com.bSHongbao.manager.Message;
 import com.bSHongbao.model.RedPacket;
+import com.bSHongbao.util.Money;
+import com.bSHongbao.util.SchedulerCompat;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -10,101 +16,68 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 /**
  * 红包GUI界面
  * Red Packet GUI Interface
  */
 public class RedPacketGUI {
+    private static final int MENU_SIZE = 27; // 9x3
+    
     private final BSHongbao plugin;
-    private final Map<UUID, RedPacketCreationSession> creationSessions;
+    private final CreationSessionStore creationSessions;
+    private volatile MenuTemplate menuTemplate;
     
     public RedPacketGUI(BSHongbao plugin) {
         this.plugin = plugin;
-        this.creationSessions = new HashMap<>();
+        this.creationSessions = new CreationSessionStore();
     }
     
     /**
      * 打开主界面
      */
     public void openMainGUI(Player player) {
-        String title = plugin.getConfigManager().getGuiTitle();
-        Inventory inventory = Bukkit.createInventory(null, 27, title); // 9x3 = 27 slots
-        
-        // 填充装饰物品
-        fillDecorationItems(inventory);
-        
-        // 添加普通红包选项
-        ItemStack normalPacket = createNormalPacketItem();
-        int normalSlot = plugin.getConfigManager().getItemSlot("items.normal-packet.slot");
-        inventory.setItem(normalSlot, normalPacket);
+        MenuTemplate template = getMenuTemplate();
+        RedPacketMenuHolder holder = new RedPacketMenuHolder(template.normalSlot, template.luckySlot);
+        Inventory inventory = Bukkit.createInventory(holder, MENU_SIZE, template.title);
+        holder.setInventory(inventory);
         
-        // 添加拼手气红包选项
-        ItemStack luckyPacket = createLuckyPacketItem();
-        int luckySlot = plugin.getConfigManager().getItemSlot("items.lucky-packet.slot");
-        inventory.setItem(luckySlot, luckyPacket);
+        // 写入物品栏时服务端会复制每个物品，模板中的物品可以被所有玩家共用
+        inventory.setContents(template.contents);
         
         player.openInventory(inventory);
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
+        if (template.source.isDebugEnabled()) {
             plugin.getLogger().info("Opened red packet GUI for player: " + player.getName());
         }
     }
     
     /**
-     * 填充装饰物品
+     * 获取当前配置对应的主界面模板；配置重载后快照更换，模板在下次打开时重建
      */
-    private void fillDecorationItems(Inventory inventory) {
-        String materialName = plugin.getConfigManager().getItemMaterial("items.decoration.material");
-        Material material;
-        
-        try {
-            material = Material.valueOf(materialName.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            material = Material.BLACK_STAINED_GLASS_PANE;
-        }
-        
-        ItemStack decoration = new ItemStack(material);
-        ItemMeta meta = decoration.getItemMeta();
-        if (meta != null) {
-            meta.setDisplayName(plugin.getConfigManager().getItemName("items.decoration.name"));
-            decoration.setItemMeta(meta);
-        }
-        
-        // 填充除了红包选项位置外的所有槽位
-        int normalSlot = plugin.getConfigManager().getItemSlot("items.normal-packet.slot");
-        int luckySlot = plugin.getConfigManager().getItemSlot("items.lucky-packet.slot");
-        
-        for (int i = 0; i < 27; i++) {
-            if (i != normalSlot && i != luckySlot) {
-                inventory.setItem(i, decoration);
-            }
+    private MenuTemplate getMenuTemplate() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        MenuTemplate template = menuTemplate;
+        if (template == null || template.source != config) {
+            template = new MenuTemplate(config);
+            menuTemplate = template;
         }
+        return template;
     }
     
     /**
-     * 创建普通红包物品
+     * 按配置创建物品
      */
-    private ItemStack createNormalPacketItem() {
-        String materialName = plugin.getConfigManager().getItemMaterial("items.normal-packet.material");
-        Material material;
-        
-        try {
-            material = Material.valueOf(materialName.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            material = Material.RED_WOOL;
-        }
-        
-        ItemStack item = new ItemStack(material);
+    private static ItemStack createItem(ConfigSnapshot.ItemSpec spec) {
+        ItemStack item = new ItemStack(spec.material());
         ItemMeta meta = item.getItemMeta();
         
         if (meta != null) {
-            meta.setDisplayName(plugin.getConfigManager().getItemName("items.normal-packet.name"));
-            String[] lore = plugin.getConfigManager().getItemLore("items.normal-packet.lore");
-            meta.setLore(Arrays.asList(lore));
+            meta.setDisplayName(spec.name());
+            meta.setLore(spec.lore());
             item.setItemMeta(meta);
         }
         
@@ -112,46 +85,57 @@ public class RedPacketGUI {
     }
     
     /**
-     * 创建拼手气红包物品
+     * 主界面模板
+     * 每个配置快照构建一次：装饰物品填满除红包选项外的所有槽位
      */
-    private ItemStack createLuckyPacketItem() {
-        String materialName = plugin.getConfigManager().getItemMaterial("items.lucky-packet.material");
-        Material material;
-        
-        try {
-            material = Material.valueOf(materialName.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            material = Material.GOLD_INGOT;
+    private static final class MenuTemplate {
+        private final ConfigSnapshot source;
+        private final String title;
+        private final ItemStack[] contents;
+        private final int normalSlot;
+        private final int luckySlot;
+        
+        private MenuTemplate(ConfigSnapshot config) {
+            this.source = config;
+            this.title = config.getGuiTitle();
+            this.contents = new ItemStack[MENU_SIZE];
+            
+            ConfigSnapshot.ItemSpec decorationSpec = config.getDecorationItem();
+            ItemStack decoration = new ItemStack(decorationSpec.material());
+            ItemMeta meta = decoration.getItemMeta();
+            if (meta != null) {
+                meta.setDisplayName(decorationSpec.name());
+                decoration.setItemMeta(meta);
+            }
+            Arrays.fill(contents, decoration);
+            
+            ConfigSnapshot.ItemSpec normalPacket = config.getNormalPacketItem();
+            ConfigSnapshot.ItemSpec luckyPacket = config.getLuckyPacketItem();
+            this.normalSlot = normalPacket.slot();
+            this.luckySlot = luckyPacket.slot();
+            setIfInRange(normalPacket.slot(), createItem(normalPacket));
+            setIfInRange(luckyPacket.slot(), createItem(luckyPacket));
         }
         
-        ItemStack item = new ItemStack(material);
-        ItemMeta meta = item.getItemMeta();
-        
-        if (meta != null) {
-            meta.setDisplayName(plugin.getConfigManager().getItemName("items.lucky-packet.name"));
-            String[] lore = plugin.getConfigManager().getItemLore("items.lucky-packet.lore");
-            meta.setLore(Arrays.asList(lore));
-            item.setItemMeta(meta);
+        private void setIfInRange(int slot, ItemStack item) {
+            if (slot >= 0 && slot < MENU_SIZE) {
+                contents[slot] = item;
+            }
         }
-        
-        return item;
     }
     
     /**
-     * 处理GUI点击事件
+     * 处理GUI点击事件（槽位按界面打开时的布局解析）
      */
-    public void handleClick(Player player, int slot, ItemStack clickedItem) {
+    public void handleClick(Player player, RedPacketMenuHolder holder, int slot, ItemStack clickedItem) {
         if (clickedItem == null || clickedItem.getType() == Material.AIR) {
             return;
         }
         
-        int normalSlot = plugin.getConfigManager().getItemSlot("items.normal-packet.slot");
-        int luckySlot = plugin.getConfigManager().getItemSlot("items.lucky-packet.slot");
-        
-        if (slot == normalSlot) {
+        if (slot == holder.getNormalSlot()) {
             // 点击普通红包
             startRedPacketCreation(player, RedPacket.RedPacketType.NORMAL);
-        } else if (slot == luckySlot) {
+        } else if (slot == holder.getLuckySlot()) {
             // 点击拼手气红包
             startRedPacketCreation(player, RedPacket.RedPacketType.LUCKY);
         }
@@ -166,12 +150,13 @@ public class RedPacketGUI {
         UUID playerId = player.getUniqueId();
         
         // 创建会话
-        RedPacketCreationSession session = new RedPacketCreationSession(type);
+        RedPacketCreationSession session = new RedPacketCreationSession(type,
+                plugin.getConfigManager().getCreationTimeoutMillis());
         creationSessions.put(playerId, session);
         
         // 提示输入金额
-        String message = plugin.getConfigManager().getMessage("messages.prompts.enter-amount");
-        String cancelHint = plugin.getConfigManager().getRawMessage("messages.prompts.cancel-hint");
+        String message = plugin.getConfigManager().format(Message.ENTER_AMOUNT);
+        String cancelHint = plugin.getConfigManager().formatRaw(Message.CANCEL_HINT);
         
         player.sendMessage(message);
         player.sendMessage(cancelHint);
@@ -195,7 +180,7 @@ public class RedPacketGUI {
         // 检查是否取消
         if ("cancel".equalsIgnoreCase(message.trim())) {
             creationSessions.remove(playerId);
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.success.packet-created").replace("成功创建红包！", "已取消红包创建"));
+            player.sendMessage(plugin.getConfigManager().format(Message.CREATION_CANCELLED));
             return true;
         }
         
@@ -212,24 +197,24 @@ public class RedPacketGUI {
      * 处理金额输入
      */
     private boolean handleAmountInput(Player player, RedPacketCreationSession session, String message) {
-        java.math.BigDecimal amount = plugin.getEconomyManager().parseAmount(message.trim());
+        long amount = plugin.getEconomyManager().parseAmount(message.trim());
         
-        if (amount == null) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.invalid-amount"));
+        if (amount <= 0) {
+            player.sendMessage(plugin.getConfigManager().format(Message.INVALID_AMOUNT));
             return true;
         }
         
         // 检查最小金额
-        java.math.BigDecimal minAmount = plugin.getConfigManager().getMinTotalAmount();
-        if (amount.compareTo(minAmount) < 0) {
-            String errorMsg = plugin.getConfigManager().getMessage("messages.errors.amount-too-low", "{min}", minAmount.toString());
+        long minAmount = plugin.getConfigManager().getMinTotalAmount();
+        if (amount < minAmount) {
+            String errorMsg = plugin.getConfigManager().format(Message.AMOUNT_TOO_LOW, Money.format(minAmount));
             player.sendMessage(errorMsg);
             return true;
         }
         
         // 检查余额
         if (!plugin.getEconomyManager().hasEnough(player, amount)) {
-            String errorMsg = plugin.getConfigManager().getMessage("messages.errors.insufficient-funds", "{amount}", amount.toString());
+            String errorMsg = plugin.getConfigManager().format(Message.INSUFFICIENT_FUNDS, Money.format(amount));
             player.sendMessage(errorMsg);
             return true;
         }
@@ -238,8 +223,8 @@ public class RedPacketGUI {
         session.setStep(RedPacketCreationSession.Step.WAITING_FOR_COUNT);
         
         // 提示输入份数
-        String promptMsg = plugin.getConfigManager().getMessage("messages.prompts.enter-count");
-        String cancelHint = plugin.getConfigManager().getRawMessage("messages.prompts.cancel-hint");
+        String promptMsg = plugin.getConfigManager().format(Message.ENTER_COUNT);
+        String cancelHint = plugin.getConfigManager().formatRaw(Message.CANCEL_HINT);
         
         player.sendMessage(promptMsg);
         player.sendMessage(cancelHint);
@@ -254,14 +239,14 @@ public class RedPacketGUI {
         Integer count = plugin.getEconomyManager().parseCount(message.trim());
         
         if (count == null) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.invalid-count"));
+            player.sendMessage(plugin.getConfigManager().format(Message.INVALID_COUNT));
             return true;
         }
         
         // 检查最大份数
         int maxCount = plugin.getConfigManager().getMaxPacketCount();
         if (count > maxCount) {
-            String errorMsg = plugin.getConfigManager().getMessage("messages.errors.count-too-high", "{max}", String.valueOf(maxCount));
+            String errorMsg = plugin.getConfigManager().format(Message.COUNT_TOO_HIGH, maxCount);
             player.sendMessage(errorMsg);
             return true;
         }
@@ -277,36 +262,35 @@ public class RedPacketGUI {
      * 完成红包创建
      */
     private void completeRedPacketCreation(Player player, RedPacketCreationSession session, int count) {
-        java.math.BigDecimal amount = session.getAmount();
+        long amount = session.getAmount();
         RedPacket.RedPacketType type = session.getType();
         
-        // 扣除金额
-        if (!plugin.getEconomyManager().withdraw(player, amount)) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.insufficient-funds", "{amount}", amount.toString()));
-            return;
-        }
-        
-        // 创建红包
-        RedPacket packet = plugin.getRedPacketManager().createRedPacket(
-                player.getUniqueId().toString(),
-                player.getName(),
-                type,
-                amount,
-                count
-        );
-        
-        // 发送成功消息
-        String successMsg = plugin.getConfigManager().getMessage("messages.success.packet-created", 
-                "{amount}", amount.toString(),
-                "{count}", String.valueOf(count));
-        player.sendMessage(successMsg);
-        
-        // 广播红包消息
-        plugin.getChatManager().broadcastRedPacket(packet);
+        // 扣款、创建与广播由红包服务完成（异步，完成后回到玩家所在线程）
+        plugin.getRedPacketService().createPacket(player, new RedPacketSpec(type, amount, count)).whenComplete((packet, error) -> {
+            if (error == null) {
+                // 发送成功消息
+                String successMsg = plugin.getConfigManager().format(Message.PACKET_CREATED, Money.format(amount), count);
+                player.sendMessage(successMsg);
+                return;
+            }
+            
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RedPacketCreationException creationError) {
+                switch (creationError.getReason()) {
+                    case INSUFFICIENT_FUNDS ->
+                            player.sendMessage(plugin.getConfigManager().format(Message.INSUFFICIENT_FUNDS, Money.format(amount)));
+                    case ECONOMY_DISABLED -> player.sendMessage(plugin.getConfigManager().format(Message.ECONOMY_DISABLED));
+                    case INVALID_REQUEST -> player.sendMessage(plugin.getConfigManager().format(Message.INVALID_COUNT));
+                }
+            } else {
+                player.sendMessage(plugin.getConfigManager().format(Message.SYSTEM_ERROR));
+                plugin.getLogger().severe("Failed to create red packet for " + player.getName() + ": " + cause);
+            }
+        });
     }
     
     /**
-     * 获取创建会话
+     * 获取创建会话（无锁，可在异步聊天线程调用）
      */
     public RedPacketCreationSession getCreationSession(UUID playerId) {
         return creationSessions.get(playerId);
@@ -319,6 +303,30 @@ public class RedPacketGUI {
         creationSessions.remove(playerId);
     }
     
+    /**
+     * 获取进行中的创建会话数
+     */
+    public int getCreationSessionCount() {
+        return creationSessions.size();
+    }
+    
+    /**
+     * 批量清理已到期的会话并提示对应玩家
+     *
+     * @return 清理的会话数
+     */
+    public int purgeExpiredSessions() {
+        List<UUID> expired = creationSessions.purgeExpired();
+        for (UUID playerId : expired) {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null) {
+                SchedulerCompat.runEntityTask(plugin, player,
+                        () -> player.sendMessage(plugin.getConfigManager().format(Message.INPUT_TIMEOUT)), null);
+            }
+        }
+        return expired.size();
+    }
+    
     /**
      * 清理所有会话
      */
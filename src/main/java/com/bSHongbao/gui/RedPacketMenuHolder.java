@@ -0,0 +1,60 @@
+package com.bSHongbao.gui;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+/**
+ * 红包界面持有者
+ * Red Packet Menu Holder
+ * <p>
+ * 红包 GUI 的物品栏都以它为持有者，点击事件用一次 instanceof 即可识别，不再比较标题。
+ * 每个打开的界面各持有一份状态（打开时的槽位布局、页码），处理点击时无需查询配置或全局表。
+ */
+public class RedPacketMenuHolder implements InventoryHolder {
+    private final int normalSlot;
+    private final int luckySlot;
+    private int page;
+    private Inventory inventory;
+
+    public RedPacketMenuHolder(int normalSlot, int luckySlot) {
+        this.normalSlot = normalSlot;
+        this.luckySlot = luckySlot;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * 绑定由本持有者创建的物品栏
+     */
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    /**
+     * 获取打开时普通红包选项的槽位
+     */
+    public int getNormalSlot() {
+        return normalSlot;
+    }
+
+    /**
+     * 获取打开时拼手气红包选项的槽位
+     */
+    public int getLuckySlot() {
+        return luckySlot;
+    }
+
+    /**
+     * 获取当前页码（从 0 开始）
+     */
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+}
@@ -2,6 +2,9 @@ package com.bSHongbao.listener;
 
 import com.bSHongbao.BSHongbao;
 import com.bSHongbao.gui.RedPacketCreationSession;
+import com.bSHongbao.gui.RedPacketMenuHolder;
+import com.bSHongbao.manager.Message;
+import com.bSHongbao.util.PacketIds;
 import com.bSHongbao.util.SchedulerCompat;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -13,12 +16,15 @@ import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
 
 /**
  * 玩家事件监听器
  * Player Event Listener
  */
 public class PlayerListener implements Listener {
+    private static final String CLAIM_COMMAND_PREFIX = "/bshongbao_claim ";
+
     private final BSHongbao plugin;
 
     public PlayerListener(BSHongbao plugin) {
@@ -30,21 +36,23 @@ public class PlayerListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGH)
     public void onInventoryClick(InventoryClickEvent event) {
-        if (!(event.getWhoClicked() instanceof Player)) {
+        // 检查是否是红包GUI（不取方块快照，其他物品栏的点击只多一次 instanceof）
+        Inventory inventory = event.getInventory();
+        InventoryHolder holder = inventory.getHolder(false);
+        if (!(holder instanceof RedPacketMenuHolder)) {
             return;
         }
 
-        Player player = (Player) event.getWhoClicked();
-        Inventory inventory = event.getInventory();
+        event.setCancelled(true); // 取消默认行为
 
-        // 检查是否是红包GUI
-        String guiTitle = plugin.getConfigManager().getGuiTitle();
-        if (inventory.getSize() == 27 && guiTitle.equals(event.getView().getTitle())) {
-            event.setCancelled(true); // 取消默认行为
+        // 只响应界面本身的点击，忽略玩家背包
+        if (!(event.getWhoClicked() instanceof Player) || event.getClickedInventory() != inventory) {
+            return;
+        }
 
-            if (event.getCurrentItem() != null) {
-                plugin.getRedPacketGUI().handleClick(player, event.getSlot(), event.getCurrentItem());
-            }
+        Player player = (Player) event.getWhoClicked();
+        if (event.getCurrentItem() != null) {
+            plugin.getRedPacketGUI().handleClick(player, (RedPacketMenuHolder) holder, event.getSlot(), event.getCurrentItem());
         }
     }
 
@@ -64,8 +72,7 @@ public class PlayerListener implements Listener {
             SchedulerCompat.runEntityTask(plugin, player, () -> {
                 if (session.isExpired()) {
                     plugin.getRedPacketGUI().removeCreationSession(player.getUniqueId());
-                    player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.packet-not-found")
-                            .replace("红包不存在或已过期！", "输入超时，请重新开始！"));
+                    player.sendMessage(plugin.getConfigManager().format(Message.INPUT_TIMEOUT));
                     return;
                 }
                 // 在区域线程安全地处理金额、份数、GUI、经济扣款
@@ -85,12 +92,13 @@ public class PlayerListener implements Listener {
         String command = event.getMessage();
 
         // 检查是否是红包领取命令
-        if (command.startsWith("/bshongbao_claim ")) {
+        if (command.startsWith(CLAIM_COMMAND_PREFIX)) {
             event.setCancelled(true);
 
-            String[] parts = command.split(" ");
-            if (parts.length >= 2) {
-                String packetId = parts[1];
+            // 无效的 ID 解析为 -1，按红包不存在处理
+            String encodedId = command.substring(CLAIM_COMMAND_PREFIX.length()).trim();
+            if (!encodedId.isEmpty()) {
+                long packetId = PacketIds.decode(encodedId);
                 plugin.getChatManager().handleClaimCommand(event.getPlayer(), packetId);
             }
         }
@@ -120,6 +128,7 @@ public class PlayerListener implements Listener {
 
         // 清理玩家的红包创建会话
         plugin.getRedPacketGUI().removeCreationSession(player.getUniqueId());
+        plugin.getChatManager().getClaimRateLimiter().remove(player.getUniqueId());
 
         if (plugin.getConfigManager().isDebugEnabled()) {
             plugin.getLogger().info("Player " + player.getName() + " quit, cleaned up sessions");
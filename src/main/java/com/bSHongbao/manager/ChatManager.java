@@ -1,153 +1,401 @@
 package com.bSHongbao.manager;
 
 import com.bSHongbao.BSHongbao;
+import com.bSHongbao.metrics.ClaimTrace;
+import com.bSHongbao.metrics.ClaimTracer;
 import com.bSHongbao.model.RedPacket;
-import net.md_5.bungee.api.chat.ClickEvent;
-import net.md_5.bungee.api.chat.ComponentBuilder;
-import net.md_5.bungee.api.chat.HoverEvent;
-import net.md_5.bungee.api.chat.TextComponent;
+import com.bSHongbao.storage.AuditLog;
+import com.bSHongbao.util.Money;
+import com.bSHongbao.util.PacketIds;
+import com.bSHongbao.util.SchedulerCompat;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 聊天管理器
  * Chat Manager
  */
 public class ChatManager {
+    /** 摘要中最多列出的领取者名字数 */
+    private static final int DIGEST_MAX_NAMES = 5;
+    
     private final BSHongbao plugin;
+    private final Map<Long, ClaimDigest> claimDigests = new ConcurrentHashMap<>();
+    private final ClaimRateLimiter claimRateLimiter;
+    private final ClaimTracer claimTracer;
     
     public ChatManager(BSHongbao plugin) {
         this.plugin = plugin;
+        this.claimRateLimiter = new ClaimRateLimiter(plugin.getConfigManager().getClaimRatePerSecond(),
+                plugin.getConfigManager().getClaimBurst());
+        this.claimTracer = new ClaimTracer(plugin.getLogger(), plugin.getConfigManager().getTraceSampleRate(),
+                plugin.getConfigManager().getTraceSlowThresholdMillis());
+    }
+    
+    /**
+     * 重载配置后更新限流与追踪参数
+     */
+    public void reload() {
+        claimRateLimiter.configure(plugin.getConfigManager().getClaimRatePerSecond(),
+                plugin.getConfigManager().getClaimBurst());
+        claimTracer.configure(plugin.getConfigManager().getTraceSampleRate(),
+                plugin.getConfigManager().getTraceSlowThresholdMillis());
+    }
+    
+    public ClaimRateLimiter getClaimRateLimiter() {
+        return claimRateLimiter;
+    }
+    
+    public ClaimTracer getClaimTracer() {
+        return claimTracer;
     }
     
     /**
      * 广播红包消息
+     * 消息只构建一次，所有在线玩家共享同一个不可变的 Adventure 组件
      */
     public void broadcastRedPacket(RedPacket packet) {
-        String message = plugin.getConfigManager().getRawMessage("messages.chat.packet-sent")
-                .replace("{player}", packet.getSenderName())
-                .replace("{type}", packet.getType().getDisplayName());
-        
-        // 创建可点击的消息
-        TextComponent mainMessage = new TextComponent(message.replace("[点击领取]", ""));
-        
-        TextComponent clickableText = new TextComponent("[点击领取]");
-        clickableText.setColor(net.md_5.bungee.api.ChatColor.GREEN);
-        clickableText.setBold(true);
-        
-        // 设置点击事件
-        clickableText.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/bshongbao_claim " + packet.getId()));
-        
-        // 设置悬停提示
-        ComponentBuilder hoverBuilder = new ComponentBuilder("点击领取红包\n")
-                .color(net.md_5.bungee.api.ChatColor.YELLOW)
-                .append("类型: " + packet.getType().getDisplayName() + "\n")
-                .color(net.md_5.bungee.api.ChatColor.WHITE)
-                .append("总金额: " + plugin.getEconomyManager().formatAmount(packet.getTotalAmount()) + "\n")
-                .color(net.md_5.bungee.api.ChatColor.WHITE)
-                .append("总份数: " + packet.getTotalCount() + "\n")
-                .color(net.md_5.bungee.api.ChatColor.WHITE)
-                .append("剩余: " + packet.getRemainingCount() + " 份")
-                .color(net.md_5.bungee.api.ChatColor.GRAY);
-        
-        clickableText.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, hoverBuilder.create()));
-        
-        // 组合消息
-        TextComponent fullMessage = new TextComponent(mainMessage);
-        fullMessage.addExtra(clickableText);
+        Component announcement = buildPacketAnnouncement(packet);
         
         // 发送给所有在线玩家
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            player.spigot().sendMessage(fullMessage);
+        SchedulerCompat.fanOut(plugin, Bukkit.getOnlinePlayers(), player -> player.sendMessage(announcement));
+        
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Broadcasted red packet: " + packet.getShortId() + " by " + packet.getSenderName());
+        }
+    }
+    
+    /**
+     * 合并广播一批红包：所有红包共用一条消息，每个红包一个编号按钮
+     */
+    public void broadcastRedPackets(List<RedPacket> packets) {
+        if (packets.isEmpty()) {
+            return;
+        }
+        if (packets.size() == 1) {
+            broadcastRedPacket(packets.get(0));
+            return;
         }
         
+        RedPacket first = packets.get(0);
+        long totalAmount = 0;
+        for (RedPacket packet : packets) {
+            totalAmount += packet.getTotalAmount();
+        }
+        TextComponent.Builder builder = Component.text().append(
+                plugin.getConfigManager().getSnapshot().getTemplate(Message.PACKET_SENT_BATCH)
+                        .renderComponent(first.getSenderName(), packets.size(), plugin.getEconomyManager().formatAmount(totalAmount)));
+        for (int i = 0; i < packets.size(); i++) {
+            RedPacket packet = packets.get(i);
+            builder.append(Component.text(" "))
+                    .append(Component.text("[" + (i + 1) + "]", NamedTextColor.GREEN)
+                            .clickEvent(ClickEvent.runCommand("/bshongbao_claim " + packet.getShortId()))
+                            .hoverEvent(HoverEvent.showText(buildPacketHover(packet))));
+        }
+        
+        // 消息只构建一次，所有在线玩家共享
+        Component announcement = builder.build();
+        SchedulerCompat.fanOut(plugin, Bukkit.getOnlinePlayers(), player -> player.sendMessage(announcement));
+        
         if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Broadcasted red packet: " + packet.getId() + " by " + packet.getSenderName());
+            plugin.getLogger().info("Broadcasted " + packets.size() + " red packets by " + first.getSenderName());
         }
     }
     
     /**
-     * 广播红包被领取的消息
+     * 构建红包公告组件（带点击领取与悬停提示）
      */
-    public void broadcastPacketClaimed(RedPacket packet, String claimerName, BigDecimal amount) {
-        String message = plugin.getConfigManager().getRawMessage("messages.chat.packet-claimed")
-                .replace("{claimer}", claimerName)
-                .replace("{sender}", packet.getSenderName())
-                .replace("{type}", packet.getType().getDisplayName())
-                .replace("{amount}", plugin.getEconomyManager().formatAmount(amount));
+    public Component buildPacketAnnouncement(RedPacket packet) {
+        // 按钮位置留空，由下方的可点击组件补上
+        Component text = plugin.getConfigManager().getSnapshot().getTemplate(Message.PACKET_SENT)
+                .renderComponent(packet.getSenderName(), packet.getType().getDisplayName(), "");
         
-        // 发送给所有在线玩家
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            player.sendMessage(message);
+        // 可点击的领取按钮
+        Component clickable = Component.text("[点击领取]", NamedTextColor.GREEN)
+                .decorate(TextDecoration.BOLD)
+                .clickEvent(ClickEvent.runCommand("/bshongbao_claim " + packet.getShortId()))
+                .hoverEvent(HoverEvent.showText(buildPacketHover(packet)));
+        
+        // 组合消息
+        return text.append(clickable);
+    }
+    
+    /**
+     * 构建红包按钮的悬停提示
+     */
+    private Component buildPacketHover(RedPacket packet) {
+        return Component.text()
+                .append(Component.text("点击领取红包\n", NamedTextColor.YELLOW))
+                .append(Component.text("类型: " + packet.getType().getDisplayName() + "\n", NamedTextColor.WHITE))
+                .append(Component.text("总金额: " + plugin.getEconomyManager().formatAmount(packet.getTotalAmount()) + "\n", NamedTextColor.WHITE))
+                .append(Component.text("总份数: " + packet.getTotalCount() + "\n", NamedTextColor.WHITE))
+                .append(Component.text("剩余: " + packet.getRemainingCount() + " 份", NamedTextColor.GRAY))
+                .build();
+    }
+    
+    /**
+     * 广播红包被领取的消息
+     *
+     * @param amount 领取金额（分）
+     */
+    public void broadcastPacketClaimed(RedPacket packet, String claimerName, long amount) {
+        if (plugin.getConfigManager().isClaimDigestEnabled()) {
+            // 汇总模式：先记入该红包的摘要，领完时立即发送，否则由定时任务按间隔发送
+            ClaimDigest[] finished = new ClaimDigest[1];
+            claimDigests.compute(packet.getId(), (id, digest) -> {
+                if (digest == null) {
+                    digest = new ClaimDigest(packet, false);
+                } else if (digest.closed) {
+                    // 最终摘要已经发出，迟到的存款回调只通知领取者本人，不再生成新的摘要
+                    return digest;
+                }
+                digest.add(claimerName, amount);
+                if (!packet.isFullyClaimed()) {
+                    return digest;
+                }
+                finished[0] = digest;
+                return new ClaimDigest(packet, true);
+            });
+            if (finished[0] != null) {
+                sendClaimDigest(finished[0]);
+            }
+        } else {
+            Component component = plugin.getConfigManager().getSnapshot().getTemplate(Message.PACKET_CLAIMED_BROADCAST)
+                    .renderComponent(claimerName, packet.getSenderName(), packet.getType().getDisplayName(),
+                            plugin.getEconomyManager().formatAmount(amount));
+            
+            // 发送给所有在线玩家
+            SchedulerCompat.fanOut(plugin, Bukkit.getOnlinePlayers(), player -> player.sendMessage(component));
         }
         
         if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info(claimerName + " claimed red packet " + packet.getId() + " for " + amount);
+            plugin.getLogger().info(claimerName + " claimed red packet " + packet.getShortId() + " for " + Money.format(amount));
+        }
+    }
+    
+    /**
+     * 发送所有红包的领取摘要（由定时任务按间隔调用）
+     */
+    public void flushClaimDigests() {
+        for (Long packetId : claimDigests.keySet()) {
+            flushClaimDigest(packetId);
+        }
+    }
+    
+    /**
+     * 发送单个红包在本间隔内的领取摘要；已领完的红包留下关闭标记，关闭标记保留一个间隔后移除
+     */
+    private void flushClaimDigest(long packetId) {
+        ClaimDigest[] pending = new ClaimDigest[1];
+        claimDigests.computeIfPresent(packetId, (id, digest) -> {
+            if (digest.closed) {
+                // 等待仍在进行的存款回调返回后再移除
+                if (digest.swept) {
+                    return null;
+                }
+                digest.swept = true;
+                return digest;
+            }
+            pending[0] = digest;
+            return digest.packet.isFullyClaimed() ? new ClaimDigest(digest.packet, true) : null;
+        });
+        if (pending[0] != null) {
+            sendClaimDigest(pending[0]);
+        }
+    }
+    
+    /**
+     * 发送领取摘要，每个红包一行
+     */
+    private void sendClaimDigest(ClaimDigest digest) {
+        RedPacket packet = digest.packet;
+        String claimers = String.join("、", digest.claimerNames);
+        if (digest.count > digest.claimerNames.size()) {
+            claimers += " 等";
         }
+        
+        Component component = plugin.getConfigManager().getSnapshot().getTemplate(Message.PACKET_CLAIMED_DIGEST)
+                .renderComponent(claimers, digest.count, packet.getSenderName(), packet.getType().getDisplayName(),
+                        plugin.getEconomyManager().formatAmount(digest.amount), packet.getRemainingCount());
+        
+        // 发送给所有在线玩家
+        SchedulerCompat.fanOut(plugin, Bukkit.getOnlinePlayers(), player -> player.sendMessage(component));
+    }
+    
+    /**
+     * 获取等待汇总广播的红包数
+     */
+    public int getPendingDigestCount() {
+        int count = 0;
+        for (ClaimDigest digest : claimDigests.values()) {
+            if (!digest.closed) {
+                count++;
+            }
+        }
+        return count;
     }
     
     /**
      * 处理红包领取命令
      */
-    public boolean handleClaimCommand(Player player, String packetId) {
+    public boolean handleClaimCommand(Player player, long packetId) {
+        long startNanos = System.nanoTime();
+        // 未被采样时为 null，之后各阶段都不计时
+        ClaimTrace trace = claimTracer.start(packetId, player.getName());
+        // 连点或超速的请求在查找红包之前直接丢弃
+        ClaimRateLimiter.Permit permit = claimRateLimiter.tryAcquire(player.getUniqueId());
+        if (trace != null) {
+            trace.mark(ClaimTrace.Stage.RATE_LIMIT);
+        }
+        if (permit != ClaimRateLimiter.Permit.GRANTED) {
+            auditRejected(player, packetId, permit.name(), trace);
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Rejected claim from " + player.getName() + ": " + permit);
+            }
+            return true;
+        }
+        
+        // 进行中标记保持到存款完成，存款期间的重复领取直接拒绝
+        UUID playerId = player.getUniqueId();
+        CompletableFuture<?> deposit = null;
+        try {
+            deposit = claimPacket(player, packetId, startNanos, trace);
+        } finally {
+            if (deposit == null) {
+                claimRateLimiter.release(playerId);
+            }
+        }
+        if (deposit != null) {
+            deposit.whenComplete((ignored, error) -> claimRateLimiter.release(playerId));
+        }
+        return true;
+    }
+    
+    /**
+     * 领取红包并发起存款
+     *
+     * @param startNanos 收到领取命令的时间，用于统计领取耗时
+     * @param trace      领取追踪，未采样时为 null
+     * @return 存款完成时结束的 future，没有发起存款时为 null
+     */
+    private CompletableFuture<?> claimPacket(Player player, long packetId, long startNanos, ClaimTrace trace) {
         RedPacket packet = plugin.getRedPacketManager().getRedPacket(packetId);
         
         if (packet == null) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.packet-not-found"));
-            return true;
+            auditRejected(player, packetId, "NOT_FOUND", trace);
+            player.sendMessage(plugin.getConfigManager().format(Message.PACKET_NOT_FOUND));
+            return null;
         }
         
         // 检查是否是自己发的红包
         if (packet.getSenderId().equals(player.getUniqueId().toString())) {
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.already-claimed").replace("您已经领取过这个红包了！", "不能领取自己发的红包！"));
-            return true;
+            auditRejected(player, packetId, "OWN_PACKET", trace);
+            player.sendMessage(plugin.getConfigManager().format(Message.OWN_PACKET));
+            return null;
+        }
+        
+        if (trace != null) {
+            trace.mark(ClaimTrace.Stage.LOOKUP);
         }
         
         // 尝试领取红包
-        BigDecimal amount = plugin.getRedPacketManager().claimRedPacket(packetId, player.getUniqueId().toString());
+        long amount = plugin.getRedPacketManager().claimRedPacket(packetId, player.getUniqueId().toString(), trace);
         
-        if (amount == null) {
+        if (amount == RedPacket.NOT_CLAIMED) {
             // 检查具体原因
             if (packet.isExpired()) {
-                player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.packet-not-found"));
-            } else if (packet.getClaimedPlayers().containsKey(player.getUniqueId().toString())) {
-                player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.already-claimed"));
+                auditRejected(player, packetId, "EXPIRED", trace);
+                player.sendMessage(plugin.getConfigManager().format(Message.PACKET_NOT_FOUND));
+            } else if (packet.hasClaimed(player.getUniqueId().toString())) {
+                auditRejected(player, packetId, "ALREADY_CLAIMED", trace);
+                player.sendMessage(plugin.getConfigManager().format(Message.ALREADY_CLAIMED));
             } else if (packet.isFullyClaimed()) {
-                player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.packet-not-found").replace("红包不存在或已过期！", "红包已被领完！"));
+                auditRejected(player, packetId, "EMPTY", trace);
+                player.sendMessage(plugin.getConfigManager().format(Message.PACKET_EMPTY));
             } else {
-                player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.packet-not-found"));
+                auditRejected(player, packetId, "NOT_FOUND", trace);
+                player.sendMessage(plugin.getConfigManager().format(Message.PACKET_NOT_FOUND));
             }
-            return true;
+            return null;
         }
+        plugin.getAuditLog().record(AuditLog.Type.CLAIM, packetId, player.getName(),
+                player.getUniqueId().toString(), amount, null);
+        plugin.getMetrics().recordClaim(amount);
         
-        // 发放金额
-        if (plugin.getEconomyManager().deposit(player, amount)) {
-            // 发送成功消息给领取者
-            String successMsg = plugin.getConfigManager().getMessage("messages.success.packet-claimed", 
-                    "{amount}", plugin.getEconomyManager().formatAmount(amount));
-            player.sendMessage(successMsg);
-            
-            // 广播领取消息
-            broadcastPacketClaimed(packet, player.getName(), amount);
-            
-            return true;
-        } else {
-            // 存款失败，需要退还到红包
-            player.sendMessage(plugin.getConfigManager().getMessage("messages.errors.invalid-amount").replace("请输入有效的金额！", "系统错误，请联系管理员！"));
-            plugin.getLogger().severe("Failed to deposit " + amount + " to player " + player.getName() + " for red packet " + packetId);
-            return true;
+        // 之后追踪对象交给经济线程，本线程不再修改
+        if (trace != null) {
+            trace.mark(ClaimTrace.Stage.DISPATCH);
+        }
+        // 发放金额（异步，完成后回到玩家所在线程）
+        // 存款结果先在经济线程上记入日志，崩溃后重放不会重复发放或丢失这笔领取
+        UUID playerId = player.getUniqueId();
+        return plugin.getEconomyManager().depositAsync(player, amount, trace,
+                paid -> plugin.getRedPacketManager().settleClaim(packetId, playerId, amount, paid)).thenAccept(success -> {
+            if (trace != null) {
+                trace.mark(ClaimTrace.Stage.CALLBACK);
+            }
+            if (success) {
+                // 发送成功消息给领取者
+                String successMsg = plugin.getConfigManager().format(Message.PACKET_CLAIMED, plugin.getEconomyManager().formatAmount(amount));
+                player.sendMessage(successMsg);
+                
+                // 广播领取消息
+                broadcastPacketClaimed(packet, player.getName(), amount);
+                if (trace != null) {
+                    trace.mark(ClaimTrace.Stage.BROADCAST);
+                }
+            } else {
+                // 存款失败：份额已由 settleClaim 记为领取者的待补发金额，由定时任务重试发放
+                player.sendMessage(plugin.getConfigManager().format(Message.SYSTEM_ERROR));
+                plugin.getAuditLog().record(AuditLog.Type.DEPOSIT_FAILED, packetId, player.getName(),
+                        player.getUniqueId().toString(), amount, "claim");
+                plugin.getMetrics().recordDepositFailure("claim");
+                plugin.getLogger().severe("Failed to deposit " + Money.format(amount) + " to player " + player.getName() + " for red packet " + PacketIds.encode(packetId)
+                        + ", queued for retry");
+            }
+            if (trace != null) {
+                claimTracer.finish(trace, success ? "CLAIMED" : "DEPOSIT_FAILED");
+            }
+        }).whenComplete((ignored, error) -> {
+            plugin.getMetrics().recordClaimLatency(System.nanoTime() - startNanos);
+        });
+    }
+    
+    /**
+     * 记录被拒绝的领取
+     *
+     * @param trace 领取追踪，未采样时为 null
+     */
+    private void auditRejected(Player player, long packetId, String reason, ClaimTrace trace) {
+        plugin.getMetrics().recordRejected(reason);
+        if (trace != null) {
+            claimTracer.finish(trace, reason);
         }
+        plugin.getAuditLog().record(AuditLog.Type.CLAIM_REJECTED, packetId, player.getName(),
+                player.getUniqueId().toString(), 0L, reason);
     }
     
     /**
      * 发送红包过期通知
+     *
+     * @param refundAmount 退还金额（分）
      */
-    public void sendExpirationNotice(Player player, BigDecimal refundAmount) {
-        String message = plugin.getConfigManager().getMessage("messages.chat.packet-expired", 
-                "{amount}", plugin.getEconomyManager().formatAmount(refundAmount));
+    public void sendExpirationNotice(Player player, long refundAmount) {
+        String message = plugin.getConfigManager().format(Message.PACKET_EXPIRED, plugin.getEconomyManager().formatAmount(refundAmount));
         player.sendMessage(message);
     }
     
@@ -172,4 +420,32 @@ public class ChatManager {
         String formattedMessage = plugin.getConfigManager().getPrefix() + formatMessage(message);
         Bukkit.broadcastMessage(formattedMessage);
     }
+    
+    /**
+     * 单个红包在一个汇总间隔内的领取记录（只在 ConcurrentHashMap.compute 内修改）
+     */
+    private static final class ClaimDigest {
+        private final RedPacket packet;
+        // 最终摘要已发送，只作为关闭标记保留
+        private final boolean closed;
+        private final List<String> claimerNames;
+        private int count;
+        private long amount;
+        // 关闭标记已经过一次定时发送
+        private boolean swept;
+        
+        private ClaimDigest(RedPacket packet, boolean closed) {
+            this.packet = packet;
+            this.closed = closed;
+            this.claimerNames = closed ? List.of() : new ArrayList<>(DIGEST_MAX_NAMES);
+        }
+        
+        private void add(String claimerName, long amount) {
+            if (claimerNames.size() < DIGEST_MAX_NAMES) {
+                claimerNames.add(claimerName);
+            }
+            this.count++;
+            this.amount += amount;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.bSHongbao.manager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 领取限流器
+ * Claim Rate Limiter
+ * <p>
+ * 每个玩家一个无锁令牌桶（GCRA：只保存"理论到达时间"，一次 CAS 完成取令牌）和一个进行中标记。
+ * 连点、自动点击产生的多余领取命令在接触红包之前就被拒绝。
+ * 进行中标记一直保持到存款完成；存款迟迟没有结果时，超过 {@link #IN_FLIGHT_TIMEOUT_NANOS} 后视为已释放。
+ */
+public class ClaimRateLimiter {
+    /**
+     * 限流结果
+     */
+    public enum Permit {
+        GRANTED,
+        RATE_LIMITED,
+        IN_FLIGHT
+    }
+
+    // 进行中标记的最长保持时间，防止存款卡住后玩家永远无法再领取
+    private static final long IN_FLIGHT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Map<UUID, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder inFlightRejected = new LongAdder();
+    private volatile Limits limits;
+
+    public ClaimRateLimiter(double claimsPerSecond, int burst) {
+        configure(claimsPerSecond, burst);
+    }
+
+    /**
+     * 更新限流参数（重载配置时调用），已有令牌桶立即按新参数生效
+     *
+     * @param claimsPerSecond 每秒允许的领取次数，小于等于 0 表示不限速
+     * @param burst           允许的突发次数
+     */
+    public void configure(double claimsPerSecond, int burst) {
+        if (claimsPerSecond <= 0) {
+            this.limits = new Limits(0, 0);
+            return;
+        }
+        long interval = (long) (1_000_000_000L / claimsPerSecond);
+        this.limits = new Limits(interval, interval * (Math.max(1, burst) - 1));
+    }
+
+    /**
+     * 尝试开始一次领取；返回 GRANTED 时必须在领取结束（没有发起存款，或存款完成）后调用 {@link #release(UUID)}
+     */
+    public Permit tryAcquire(UUID playerId) {
+        Bucket bucket = buckets.computeIfAbsent(playerId, id -> new Bucket());
+        long now = System.nanoTime();
+
+        if (!bucket.tryEnter(now)) {
+            inFlightRejected.increment();
+            return Permit.IN_FLIGHT;
+        }
+        if (!bucket.tryTake(limits, now)) {
+            bucket.inFlightSince.set(IDLE);
+            rateLimited.increment();
+            return Permit.RATE_LIMITED;
+        }
+        return Permit.GRANTED;
+    }
+
+    /**
+     * 结束一次领取
+     */
+    public void release(UUID playerId) {
+        Bucket bucket = buckets.get(playerId);
+        if (bucket != null) {
+            bucket.inFlightSince.set(IDLE);
+        }
+    }
+
+    /**
+     * 移除玩家的令牌桶（玩家下线时调用）
+     */
+    public void remove(UUID playerId) {
+        buckets.remove(playerId);
+    }
+
+    /**
+     * 获取因超过速率被拒绝的次数
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * 获取因上一次领取尚未完成被拒绝的次数
+     */
+    public long getInFlightRejectedCount() {
+        return inFlightRejected.sum();
+    }
+
+    /**
+     * @param intervalNanos  每个令牌的间隔（纳秒），0 表示不限速
+     * @param toleranceNanos 允许提前的时间（突发容量）
+     */
+    private record Limits(long intervalNanos, long toleranceNanos) {}
+
+    // 没有进行中的领取
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private static final class Bucket {
+        // 理论到达时间（纳秒）
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        // 进行中的领取开始的时间（纳秒），IDLE 表示没有
+        private final AtomicLong inFlightSince = new AtomicLong(IDLE);
+
+        private boolean tryEnter(long now) {
+            long since = inFlightSince.get();
+            if (since != IDLE && now - since < IN_FLIGHT_TIMEOUT_NANOS) {
+                return false;
+            }
+            return inFlightSince.compareAndSet(since, now);
+        }
+
+        private boolean tryTake(Limits limits, long now) {
+            if (limits.intervalNanos() == 0) {
+                return true;
+            }
+            while (true) {
+                long current = theoreticalArrival.get();
+                long arrival = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                if (arrival - now > limits.toleranceNanos()) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(current, arrival + limits.intervalNanos())) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -1,18 +1,19 @@
 package com.bSHongbao.manager;
 
 import com.bSHongbao.BSHongbao;
-import org.bukkit.ChatColor;
-import org.bukkit.configuration.file.FileConfiguration;
+import com.bSHongbao.util.Money;
 
-import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * 配置管理器
  * Configuration Manager
+ * <p>
+ * 所有读取都来自当前的 {@link ConfigSnapshot}；重载时先完整解析新快照，再通过 volatile 引用整体替换
  */
 public class ConfigManager {
     private final BSHongbao plugin;
-    private FileConfiguration config;
+    private volatile ConfigSnapshot snapshot;
     
     public ConfigManager(BSHongbao plugin) {
         this.plugin = plugin;
@@ -25,181 +26,257 @@ public class ConfigManager {
     public void loadConfig() {
         plugin.saveDefaultConfig();
         plugin.reloadConfig();
-        config = plugin.getConfig();
+        snapshot = ConfigSnapshot.load(plugin.getConfig());
         
         plugin.getLogger().info("Configuration loaded successfully");
     }
     
     /**
      * 重新加载配置
+     * 数据库、经济、审计、指标导出等只在启动时读取的配置项发生变化时记录警告，提示需要重启
      */
     public void reloadConfig() {
+        ConfigSnapshot previous = snapshot;
         loadConfig();
+        
+        List<String> changed = previous.restartRequiredChanges(snapshot);
+        if (!changed.isEmpty()) {
+            plugin.getLogger().warning("These settings changed but only take effect after a restart: " + String.join(", ", changed));
+        }
     }
     
     /**
-     * 获取最小红包总金额
+     * 获取当前配置快照；需要连续读取多个配置项时先取快照，保证读到的是同一版本
      */
-    public BigDecimal getMinTotalAmount() {
-        double amount = config.getDouble("redpacket.min-total-amount", 1000.0);
-        return BigDecimal.valueOf(amount);
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * 获取最小红包总金额（分）
+     */
+    public long getMinTotalAmount() {
+        return snapshot.getMinTotalAmount();
     }
     
     /**
      * 获取最大红包份数
      */
     public int getMaxPacketCount() {
-        return config.getInt("redpacket.max-packet-count", 50);
+        return snapshot.getMaxPacketCount();
     }
     
     /**
      * 获取红包过期时间（分钟）
      */
     public long getExpirationMinutes() {
-        return config.getLong("redpacket.expiration-minutes", 5);
+        return snapshot.getExpirationMinutes();
     }
     
     /**
-     * 获取最小单个红包金额
+     * 获取红包创建会话的有效时长（毫秒）
      */
-    public BigDecimal getMinSingleAmount() {
-        double amount = config.getDouble("redpacket.min-single-amount", 0.01);
-        return BigDecimal.valueOf(amount);
+    public long getCreationTimeoutMillis() {
+        return snapshot.getCreationTimeoutMillis();
     }
     
     /**
-     * 获取消息前缀
+     * 获取最小单个红包金额（分）
      */
-    public String getPrefix() {
-        String prefix = config.getString("messages.prefix", "&6[红包] &r");
-        return ChatColor.translateAlternateColorCodes('&', prefix);
+    public long getMinSingleAmount() {
+        return snapshot.getMinSingleAmount();
     }
-
-    public String getSimplePrefix() {
-        return config.getString("messages.simple-prefix", "&6[红包] &r");
+    
+    /**
+     * 获取拼手气红包按需生成金额的份数阈值
+     */
+    public int getLazyGenerationThreshold() {
+        return snapshot.getLazyGenerationThreshold();
     }
     
     /**
-     * 获取GUI标题
+     * 是否以汇总方式广播领取消息（否则每次领取单独广播）
      */
-    public String getGuiTitle() {
-        String title = config.getString("messages.gui.main-title", "&c&l红包系统");
-        return ChatColor.translateAlternateColorCodes('&', title);
+    public boolean isClaimDigestEnabled() {
+        return snapshot.isClaimDigestEnabled();
     }
     
     /**
-     * 获取消息并格式化
+     * 获取领取汇总的广播间隔（tick）
      */
-    public String getMessage(String path) {
-        String message = config.getString(path, "消息语句未找到: " + path + "尝试删除配置文件重新生成或者是在github上找到缺失部分");
-        return getPrefix() + ChatColor.translateAlternateColorCodes('&', message);
+    public long getClaimDigestIntervalTicks() {
+        return snapshot.getClaimDigestIntervalTicks();
     }
     
     /**
-     * 获取消息并替换占位符
+     * 获取每个玩家每秒允许的领取次数（0 表示不限速）
      */
-    public String getMessage(String path, String... replacements) {
-        String message = getMessage(path);
-        
-        // 替换占位符
-        for (int i = 0; i < replacements.length; i += 2) {
-            if (i + 1 < replacements.length) {
-                message = message.replace(replacements[i], replacements[i + 1]);
-            }
-        }
-        
-        return message;
+    public double getClaimRatePerSecond() {
+        return snapshot.getClaimRatePerSecond();
     }
     
     /**
-     * 获取原始消息（不带前缀）
+     * 获取领取限流允许的突发次数
      */
-    public String getRawMessage(String path) {
-        String message = config.getString(path, "消息语句未找到: " + path + "尝试删除配置文件重新生成或者是在github上找到缺失部分");
-        return ChatColor.translateAlternateColorCodes('&', message);
+    public int getClaimBurst() {
+        return snapshot.getClaimBurst();
     }
     
     /**
-     * 获取物品材质
+     * 获取消息前缀
      */
-    public String getItemMaterial(String path) {
-        return config.getString(path, "STONE");
+    public String getPrefix() {
+        return snapshot.getPrefix();
+    }
+
+    public String getSimplePrefix() {
+        return snapshot.getSimplePrefix();
     }
     
     /**
-     * 获取物品名称
+     * 获取GUI标题
      */
-    public String getItemName(String path) {
-        String name = config.getString(path, "Unknown Item");
-        return ChatColor.translateAlternateColorCodes('&', name);
+    public String getGuiTitle() {
+        return snapshot.getGuiTitle();
     }
     
     /**
-     * 获取物品描述
+     * 渲染消息（带前缀），参数按 {@link Message} 声明的占位符顺序传入
      */
-    public String[] getItemLore(String path) {
-        java.util.List<String> loreList = config.getStringList(path);
-        String[] lore = new String[loreList.size()];
-        
-        for (int i = 0; i < loreList.size(); i++) {
-            lore[i] = ChatColor.translateAlternateColorCodes('&', loreList.get(i));
-        }
-        
-        return lore;
+    public String format(Message message, Object... args) {
+        return snapshot.format(message, args);
     }
     
     /**
-     * 获取物品槽位
+     * 渲染消息（不带前缀）
      */
-    public int getItemSlot(String path) {
-        return config.getInt(path, 0);
+    public String formatRaw(Message message, Object... args) {
+        return snapshot.formatRaw(message, args);
     }
     
     /**
      * 检查是否启用调试模式
      */
     public boolean isDebugEnabled() {
-        return config.getBoolean("debug", false);
+        return snapshot.isDebugEnabled();
     }
     
     /**
      * 获取数据库类型
      */
     public String getDatabaseType() {
-        return config.getString("database.type", "file");
+        return snapshot.getDatabaseType();
     }
     
     /**
      * 获取文件数据库路径
      */
     public String getFileDatabasePath() {
-        return config.getString("database.file.path", "data/redpackets.yml");
+        return snapshot.getFileDatabasePath();
+    }
+    
+    /**
+     * 获取日志批量刷盘间隔（毫秒）
+     */
+    public long getJournalFlushIntervalMillis() {
+        return snapshot.getJournalFlushIntervalMillis();
+    }
+    
+    /**
+     * 是否在独立线程上调用经济插件
+     */
+    public boolean isEconomyAsync() {
+        return snapshot.isEconomyAsync();
+    }
+    
+    /**
+     * 获取同一玩家存款的合并窗口（毫秒），0 表示不等待
+     */
+    public long getEconomyCoalesceWindowMillis() {
+        return snapshot.getEconomyCoalesceWindowMillis();
+    }
+    
+    /**
+     * 是否启用审计日志
+     */
+    public boolean isAuditEnabled() {
+        return snapshot.isAuditEnabled();
+    }
+    
+    /**
+     * 获取审计日志单个文件的大小上限（字节）
+     */
+    public long getAuditMaxFileBytes() {
+        return snapshot.getAuditMaxFileBytes();
+    }
+    
+    /**
+     * 获取保留的审计日志归档数量
+     */
+    public int getAuditMaxArchives() {
+        return snapshot.getAuditMaxArchives();
+    }
+    
+    /**
+     * 是否定期导出指标文件
+     */
+    public boolean isMetricsEnabled() {
+        return snapshot.isMetricsEnabled();
+    }
+    
+    /**
+     * 获取指标文件的导出间隔（秒）
+     */
+    public long getMetricsExportIntervalSeconds() {
+        return snapshot.getMetricsExportIntervalSeconds();
+    }
+    
+    /**
+     * 获取指标文件路径（相对插件数据目录）
+     */
+    public String getMetricsFile() {
+        return snapshot.getMetricsFile();
+    }
+    
+    /**
+     * 获取领取追踪的采样比例（0 到 1）
+     */
+    public double getTraceSampleRate() {
+        return snapshot.getTraceSampleRate();
+    }
+    
+    /**
+     * 获取慢领取的日志阈值（毫秒），小于等于 0 时不记录
+     */
+    public long getTraceSlowThresholdMillis() {
+        return snapshot.getTraceSlowThresholdMillis();
     }
     
     /**
      * 验证配置完整性
      */
     public boolean validateConfig() {
+        ConfigSnapshot config = snapshot;
         boolean valid = true;
         
         // 检查必要的配置项
-        if (getMinTotalAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            plugin.getLogger().warning("Invalid min-total-amount in config: " + getMinTotalAmount());
+        if (config.getMinTotalAmount() <= 0) {
+            plugin.getLogger().warning("Invalid min-total-amount in config: " + Money.format(config.getMinTotalAmount()));
             valid = false;
         }
         
-        if (getMaxPacketCount() <= 0) {
-            plugin.getLogger().warning("Invalid max-packet-count in config: " + getMaxPacketCount());
+        if (config.getMaxPacketCount() <= 0) {
+            plugin.getLogger().warning("Invalid max-packet-count in config: " + config.getMaxPacketCount());
             valid = false;
         }
         
-        if (getExpirationMinutes() <= 0) {
-            plugin.getLogger().warning("Invalid expiration-minutes in config: " + getExpirationMinutes());
+        if (config.getExpirationMinutes() <= 0) {
+            plugin.getLogger().warning("Invalid expiration-minutes in config: " + config.getExpirationMinutes());
             valid = false;
         }
         
-        if (getMinSingleAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            plugin.getLogger().warning("Invalid min-single-amount in config: " + getMinSingleAmount());
+        if (config.getMinSingleAmount() <= 0) {
+            plugin.getLogger().warning("Invalid min-single-amount in config: " + Money.format(config.getMinSingleAmount()));
             valid = false;
         }
         
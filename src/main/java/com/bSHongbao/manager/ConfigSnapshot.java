@@ -0,0 +1,221 @@
+package com.bSHongbao.manager;
+
+import com.bSHongbao.util.MessageTemplate;
+import com.bSHongbao.util.Money;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.*;
+
+/**
+ * 配置快照
+ * Configuration Snapshot
+ * <p>
+ * 加载时一次性解析出的不可变配置：数值、物品槽位与材质、已转换颜色的消息、调试开关。
+ * 热路径只读取字段，不再查询 YAML 树或转换颜色代码；重载时整体替换，读者不会看到半新半旧的配置。
+ */
+public final class ConfigSnapshot {
+    private final long minTotalAmount;
+    private final int maxPacketCount;
+    private final long expirationMinutes;
+    private final long creationTimeoutMillis;
+    private final long minSingleAmount;
+    private final int lazyGenerationThreshold;
+    private final boolean claimDigestEnabled;
+    private final long claimDigestIntervalTicks;
+    private final double claimRatePerSecond;
+    private final int claimBurst;
+
+    private final String databaseType;
+    private final String fileDatabasePath;
+    private final long journalFlushIntervalMillis;
+    private final boolean economyAsync;
+    private final long economyCoalesceWindowMillis;
+    private final boolean auditEnabled;
+    private final long auditMaxFileBytes;
+    private final int auditMaxArchives;
+    private final boolean metricsEnabled;
+    private final long metricsExportIntervalSeconds;
+    private final String metricsFile;
+    private final double traceSampleRate;
+    private final long traceSlowThresholdMillis;
+
+    private final String prefix;
+    private final String simplePrefix;
+    private final String guiTitle;
+    // 按 Message 序号索引的已编译消息模板（已转换颜色，不带前缀）
+    private final MessageTemplate[] templates;
+
+    private final ItemSpec normalPacketItem;
+    private final ItemSpec luckyPacketItem;
+    private final ItemSpec decorationItem;
+
+    private final boolean debug;
+
+    private ConfigSnapshot(ConfigurationSection config) {
+        this.minTotalAmount = Money.ofDouble(config.getDouble("redpacket.min-total-amount", 1000.0));
+        this.maxPacketCount = config.getInt("redpacket.max-packet-count", 50);
+        this.expirationMinutes = config.getLong("redpacket.expiration-minutes", 5);
+        this.creationTimeoutMillis = Math.max(1L, config.getLong("redpacket.creation-timeout-seconds", 300L)) * 1000L;
+        this.minSingleAmount = Money.ofDouble(config.getDouble("redpacket.min-single-amount", 0.01));
+        this.lazyGenerationThreshold = config.getInt("redpacket.lazy-generation-threshold", 1000);
+        this.claimDigestEnabled = "digest".equalsIgnoreCase(config.getString("redpacket.claim-broadcast.mode", "per-claim"));
+        this.claimDigestIntervalTicks = Math.max(1L, config.getLong("redpacket.claim-broadcast.digest-interval-ticks", 40L));
+        this.claimRatePerSecond = config.getDouble("redpacket.claim-rate-limit.per-second", 2.0);
+        this.claimBurst = Math.max(1, config.getInt("redpacket.claim-rate-limit.burst", 3));
+
+        this.databaseType = config.getString("database.type", "file");
+        this.fileDatabasePath = config.getString("database.file.path", "data/redpackets.journal");
+        this.journalFlushIntervalMillis = Math.max(1L, config.getLong("database.file.flush-interval-ms", 50L));
+        this.economyAsync = config.getBoolean("economy.async", true);
+        this.economyCoalesceWindowMillis = Math.max(0L, config.getLong("economy.coalesce-window-ms", 50L));
+        this.auditEnabled = config.getBoolean("audit.enabled", true);
+        this.auditMaxFileBytes = Math.max(1L, config.getLong("audit.max-file-size-mb", 16L)) * 1024L * 1024L;
+        this.auditMaxArchives = Math.max(1, config.getInt("audit.max-archives", 30));
+        this.metricsEnabled = config.getBoolean("metrics.enabled", true);
+        this.metricsExportIntervalSeconds = Math.max(1L, config.getLong("metrics.export-interval-seconds", 15L));
+        this.metricsFile = config.getString("metrics.file", "metrics/bshongbao.prom");
+        this.traceSampleRate = config.getDouble("metrics.tracing.sample-rate", 0.01);
+        this.traceSlowThresholdMillis = config.getLong("metrics.tracing.slow-threshold-ms", 50L);
+
+        this.prefix = color(config.getString("messages.prefix", "&6[红包] &r"));
+        this.simplePrefix = config.getString("messages.simple-prefix", "&6[红包] &r");
+        this.guiTitle = color(config.getString("messages.gui.main-title", "&c&l红包系统"));
+        this.templates = compileMessages(config);
+
+        this.normalPacketItem = ItemSpec.load(config, "items.normal-packet", Material.RED_WOOL);
+        this.luckyPacketItem = ItemSpec.load(config, "items.lucky-packet", Material.GOLD_INGOT);
+        this.decorationItem = ItemSpec.load(config, "items.decoration", Material.BLACK_STAINED_GLASS_PANE);
+
+        this.debug = config.getBoolean("debug", false);
+    }
+
+    /**
+     * 从配置解析快照
+     */
+    public static ConfigSnapshot load(ConfigurationSection config) {
+        return new ConfigSnapshot(config);
+    }
+
+    /**
+     * 列出与另一快照相比发生变化、但只在启动时读取的配置项（重载不会应用，需要重启）
+     *
+     * @return 变化的配置路径，没有时为空
+     */
+    public List<String> restartRequiredChanges(ConfigSnapshot other) {
+        List<String> changed = new ArrayList<>();
+        addIfChanged(changed, "redpacket.claim-broadcast.digest-interval-ticks", claimDigestIntervalTicks, other.claimDigestIntervalTicks);
+        addIfChanged(changed, "database.type", databaseType, other.databaseType);
+        addIfChanged(changed, "database.file.path", fileDatabasePath, other.fileDatabasePath);
+        addIfChanged(changed, "database.file.flush-interval-ms", journalFlushIntervalMillis, other.journalFlushIntervalMillis);
+        addIfChanged(changed, "economy.async", economyAsync, other.economyAsync);
+        addIfChanged(changed, "economy.coalesce-window-ms", economyCoalesceWindowMillis, other.economyCoalesceWindowMillis);
+        addIfChanged(changed, "audit.enabled", auditEnabled, other.auditEnabled);
+        addIfChanged(changed, "audit.max-file-size-mb", auditMaxFileBytes, other.auditMaxFileBytes);
+        addIfChanged(changed, "audit.max-archives", auditMaxArchives, other.auditMaxArchives);
+        addIfChanged(changed, "metrics.enabled", metricsEnabled, other.metricsEnabled);
+        addIfChanged(changed, "metrics.export-interval-seconds", metricsExportIntervalSeconds, other.metricsExportIntervalSeconds);
+        addIfChanged(changed, "metrics.file", metricsFile, other.metricsFile);
+        return changed;
+    }
+
+    private static void addIfChanged(List<String> changed, String path, Object current, Object other) {
+        if (!Objects.equals(current, other)) {
+            changed.add(path);
+        }
+    }
+
+    private static MessageTemplate[] compileMessages(ConfigurationSection config) {
+        Message[] messages = Message.values();
+        MessageTemplate[] compiled = new MessageTemplate[messages.length];
+        for (Message message : messages) {
+            String text = color(config.getString(message.getPath(), message.getDefaultText()));
+            compiled[message.ordinal()] = MessageTemplate.compile(text, message.getPlaceholders());
+        }
+        return compiled;
+    }
+
+    private static String color(String text) {
+        return ChatColor.translateAlternateColorCodes('&', text);
+    }
+
+    /**
+     * 获取已编译的消息模板
+     */
+    public MessageTemplate getTemplate(Message message) {
+        return templates[message.ordinal()];
+    }
+
+    /**
+     * 渲染消息（带前缀），参数按 {@link Message} 声明的占位符顺序传入
+     */
+    public String format(Message message, Object... args) {
+        return templates[message.ordinal()].renderWithPrefix(prefix, args);
+    }
+
+    /**
+     * 渲染消息（不带前缀）
+     */
+    public String formatRaw(Message message, Object... args) {
+        return templates[message.ordinal()].render(args);
+    }
+
+    public long getMinTotalAmount() { return minTotalAmount; }
+    public int getMaxPacketCount() { return maxPacketCount; }
+    public long getExpirationMinutes() { return expirationMinutes; }
+    public long getCreationTimeoutMillis() { return creationTimeoutMillis; }
+    public long getMinSingleAmount() { return minSingleAmount; }
+    public int getLazyGenerationThreshold() { return lazyGenerationThreshold; }
+    public boolean isClaimDigestEnabled() { return claimDigestEnabled; }
+    public long getClaimDigestIntervalTicks() { return claimDigestIntervalTicks; }
+    public double getClaimRatePerSecond() { return claimRatePerSecond; }
+    public int getClaimBurst() { return claimBurst; }
+    public String getDatabaseType() { return databaseType; }
+    public String getFileDatabasePath() { return fileDatabasePath; }
+    public long getJournalFlushIntervalMillis() { return journalFlushIntervalMillis; }
+    public boolean isEconomyAsync() { return economyAsync; }
+    public long getEconomyCoalesceWindowMillis() { return economyCoalesceWindowMillis; }
+    public boolean isAuditEnabled() { return auditEnabled; }
+    public long getAuditMaxFileBytes() { return auditMaxFileBytes; }
+    public int getAuditMaxArchives() { return auditMaxArchives; }
+    public boolean isMetricsEnabled() { return metricsEnabled; }
+    public long getMetricsExportIntervalSeconds() { return metricsExportIntervalSeconds; }
+    public String getMetricsFile() { return metricsFile; }
+    public double getTraceSampleRate() { return traceSampleRate; }
+    public long getTraceSlowThresholdMillis() { return traceSlowThresholdMillis; }
+    public String getPrefix() { return prefix; }
+    public String getSimplePrefix() { return simplePrefix; }
+    public String getGuiTitle() { return guiTitle; }
+    public ItemSpec getNormalPacketItem() { return normalPacketItem; }
+    public ItemSpec getLuckyPacketItem() { return luckyPacketItem; }
+    public ItemSpec getDecorationItem() { return decorationItem; }
+    public boolean isDebugEnabled() { return debug; }
+
+    /**
+     * GUI 物品配置
+     *
+     * @param material 已解析的材质（配置无效时为默认材质）
+     * @param name     已转换颜色的名称
+     * @param lore     已转换颜色的描述
+     * @param slot     槽位
+     */
+    public record ItemSpec(Material material, String name, List<String> lore, int slot) {
+        private static ItemSpec load(ConfigurationSection config, String path, Material fallback) {
+            Material material;
+            try {
+                material = Material.valueOf(config.getString(path + ".material", fallback.name()).toUpperCase());
+            } catch (IllegalArgumentException e) {
+                material = fallback;
+            }
+
+            List<String> lore = new ArrayList<>();
+            for (String line : config.getStringList(path + ".lore")) {
+                lore.add(color(line));
+            }
+
+            return new ItemSpec(material, color(config.getString(path + ".name", "Unknown Item")),
+                    Collections.unmodifiableList(lore), config.getInt(path + ".slot", 0));
+        }
+    }
+}
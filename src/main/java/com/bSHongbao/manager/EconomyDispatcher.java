@@ -0,0 +1,235 @@
+package com.bSHongbao.manager;
+
+import com.bSHongbao.BSHongbao;
+import com.bSHongbao.metrics.ClaimTrace;
+import com.bSHongbao.util.SchedulerCompat;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 异步经济调度器
+ * Asynchronous Economy Dispatcher
+ * <p>
+ * 在独立线程上调用 Vault，避免数据库型经济插件阻塞 tick；同一玩家在合并窗口内的多笔存款
+ * 合并为一次 depositPlayer 调用。结果通过 {@link SchedulerCompat} 回到玩家所在的区域线程完成。
+ */
+public class EconomyDispatcher {
+    private final BSHongbao plugin;
+    private final EconomyManager economyManager;
+    private final boolean async;
+    private final long coalesceWindowMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<UUID, PendingDeposit> pendingDeposits = new ConcurrentHashMap<>();
+    private final LongAdder depositRequests = new LongAdder();
+    private final LongAdder coalescedDeposits = new LongAdder();
+
+    public EconomyDispatcher(BSHongbao plugin, EconomyManager economyManager) {
+        this.plugin = plugin;
+        this.economyManager = economyManager;
+        this.async = plugin.getConfigManager().isEconomyAsync();
+        this.coalesceWindowMillis = plugin.getConfigManager().getEconomyCoalesceWindowMillis();
+        this.executor = async ? new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "BSHongbao-Economy");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * 异步存款；合并窗口内同一玩家的存款会合并为一次 Vault 调用
+     *
+     * @param amount    金额（分）
+     * @param trace     领取追踪，未采样时为 null
+     * @param onSettled Vault 调用返回后立即在经济线程上执行（先于回到玩家线程），用于记录存款结果；可为 null
+     * @return 存款结果，在玩家所在的区域线程上完成
+     */
+    public CompletableFuture<Boolean> deposit(Player player, long amount, ClaimTrace trace, Consumer<Boolean> onSettled) {
+        depositRequests.increment();
+        if (!async || executor.isShutdown()) {
+            boolean success = economyManager.deposit(player, amount);
+            if (trace != null) {
+                trace.mark(ClaimTrace.Stage.VAULT_DEPOSIT);
+            }
+            if (onSettled != null) {
+                onSettled.accept(success);
+            }
+            return CompletableFuture.completedFuture(success);
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        boolean[] scheduled = new boolean[1];
+        UUID playerId = player.getUniqueId();
+        pendingDeposits.compute(playerId, (id, pending) -> {
+            if (pending == null) {
+                pending = new PendingDeposit(player);
+                scheduled[0] = true;
+            } else {
+                coalescedDeposits.increment();
+            }
+            pending.add(amount, result, trace, onSettled);
+            return pending;
+        });
+
+        if (scheduled[0]) {
+            try {
+                executor.schedule(() -> flushDeposit(playerId), coalesceWindowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushDeposit(playerId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 异步扣款（不合并）
+     *
+     * @param amount 金额（分）
+     * @return 扣款结果，在玩家所在的区域线程上完成
+     */
+    public CompletableFuture<Boolean> withdraw(Player player, long amount) {
+        if (!async || executor.isShutdown()) {
+            return CompletableFuture.completedFuture(economyManager.withdraw(player, amount));
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> complete(player, result, economyManager.withdraw(player, amount)));
+        } catch (RejectedExecutionException e) {
+            result.complete(economyManager.withdraw(player, amount));
+        }
+        return result;
+    }
+
+    /**
+     * 合并窗口结束，发放该玩家累计的存款
+     */
+    private void flushDeposit(UUID playerId) {
+        PendingDeposit pending = pendingDeposits.remove(playerId);
+        if (pending == null) {
+            return;
+        }
+
+        for (ClaimTrace trace : pending.traces) {
+            trace.mark(ClaimTrace.Stage.DEPOSIT_QUEUE);
+        }
+        boolean success = economyManager.deposit(pending.player, pending.amount);
+        // 合并的存款共用一次 Vault 调用，每个追踪都记入这次调用的耗时
+        for (ClaimTrace trace : pending.traces) {
+            trace.mark(ClaimTrace.Stage.VAULT_DEPOSIT);
+        }
+        for (Consumer<Boolean> settled : pending.settledCallbacks) {
+            settled.accept(success);
+        }
+        for (CompletableFuture<Boolean> waiter : pending.waiters) {
+            complete(pending.player, waiter, success);
+        }
+    }
+
+    /**
+     * 回到玩家所在的区域线程完成结果；插件已停用或玩家已下线时直接完成
+     */
+    private void complete(Player player, CompletableFuture<Boolean> future, boolean success) {
+        if (!plugin.isEnabled()) {
+            future.complete(success);
+            return;
+        }
+        try {
+            SchedulerCompat.runEntityTask(plugin, player, () -> future.complete(success), () -> future.complete(success));
+        } catch (Exception e) {
+            future.complete(success);
+        }
+    }
+
+    /**
+     * 立即发放所有尚在合并窗口内的存款并停止调度线程（插件关闭时调用）
+     */
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Economy dispatcher did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 延迟任务在 shutdown 后默认仍会执行；这里兜底处理剩余的存款
+        for (UUID playerId : new ArrayList<>(pendingDeposits.keySet())) {
+            flushDeposit(playerId);
+        }
+    }
+
+    /**
+     * 获取存款请求总数
+     */
+    public long getDepositRequests() {
+        return depositRequests.sum();
+    }
+
+    /**
+     * 获取被合并到其他调用中的存款请求数
+     */
+    public long getCoalescedDeposits() {
+        return coalescedDeposits.sum();
+    }
+
+    /**
+     * 获取调度线程中排队的任务数（含合并窗口内的延迟发放）
+     */
+    public int getQueuedTaskCount() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * 获取当前等待合并发放的玩家数
+     */
+    public int getPendingDepositCount() {
+        return pendingDeposits.size();
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * 合并中的存款（只在 ConcurrentHashMap.compute 内修改）
+     */
+    private static final class PendingDeposit {
+        private final Player player;
+        private final List<CompletableFuture<Boolean>> waiters = new ArrayList<>(2);
+        private List<ClaimTrace> traces = List.of();
+        private List<Consumer<Boolean>> settledCallbacks = List.of();
+        private long amount;
+
+        private PendingDeposit(Player player) {
+            this.player = player;
+        }
+
+        private void add(long amount, CompletableFuture<Boolean> waiter, ClaimTrace trace, Consumer<Boolean> onSettled) {
+            this.amount += amount;
+            this.waiters.add(waiter);
+            if (trace != null) {
+                // 只有被采样的存款才分配列表
+                if (traces.isEmpty()) {
+                    traces = new ArrayList<>(2);
+                }
+                traces.add(trace);
+            }
+            if (onSettled != null) {
+                if (settledCallbacks.isEmpty()) {
+                    settledCallbacks = new ArrayList<>(2);
+                }
+                settledCallbacks.add(onSettled);
+            }
+        }
+    }
+}
@@ -1,27 +1,40 @@
 package com.bSHongbao.manager;
 
 import com.bSHongbao.BSHongbao;
+import com.bSHongbao.metrics.ClaimTrace;
+import com.bSHongbao.metrics.Histogram;
+import com.bSHongbao.util.Money;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.RegisteredServiceProvider;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * 经济系统管理器
  * Economy System Manager
+ * <p>
+ * 对外统一使用"分"（long）表示金额，仅在调用 Vault 时转换为 double
  */
 public class EconomyManager {
     private final BSHongbao plugin;
     private Economy economy;
     private boolean economyEnabled;
+    private final VaultCallStats depositStats;
+    private final VaultCallStats withdrawStats;
+    private final EconomyDispatcher dispatcher;
     
     public EconomyManager(BSHongbao plugin) {
         this.plugin = plugin;
         this.economyEnabled = false;
+        this.depositStats = new VaultCallStats(plugin.getMetrics().getVaultLatency("deposit"));
+        this.withdrawStats = new VaultCallStats(plugin.getMetrics().getVaultLatency("withdraw"));
         setupEconomy();
+        this.dispatcher = new EconomyDispatcher(plugin, this);
     }
     
     /**
@@ -53,32 +66,32 @@ public class EconomyManager {
     }
     
     /**
-     * 获取玩家余额
+     * 获取玩家余额（分）
      */
-    public BigDecimal getBalance(Player player) {
+    public long getBalance(Player player) {
         if (!isEconomyEnabled()) {
-            return BigDecimal.ZERO;
+            return 0;
         }
         
         try {
             double balance = economy.getBalance(player);
-            return BigDecimal.valueOf(balance).setScale(2, RoundingMode.HALF_UP);
+            return Money.ofDouble(balance);
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to get balance for player " + player.getName() + ": " + e.getMessage());
-            return BigDecimal.ZERO;
+            return 0;
         }
     }
     
     /**
      * 检查玩家是否有足够余额
      */
-    public boolean hasEnough(Player player, BigDecimal amount) {
+    public boolean hasEnough(Player player, long amount) {
         if (!isEconomyEnabled()) {
             return false;
         }
         
         try {
-            return economy.has(player, amount.doubleValue());
+            return economy.has(player, Money.toDouble(amount));
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to check balance for player " + player.getName() + ": " + e.getMessage());
             return false;
@@ -88,75 +101,132 @@ public class EconomyManager {
     /**
      * 从玩家账户扣除金额
      */
-    public boolean withdraw(Player player, BigDecimal amount) {
+    public boolean withdraw(Player player, long amount) {
         if (!isEconomyEnabled()) {
             return false;
         }
         
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (amount <= 0) {
             return false;
         }
         
+        long start = System.nanoTime();
+        boolean success = false;
         try {
-            net.milkbowl.vault.economy.EconomyResponse response = economy.withdrawPlayer(player, amount.doubleValue());
+            net.milkbowl.vault.economy.EconomyResponse response = economy.withdrawPlayer(player, Money.toDouble(amount));
             
-            if (response.transactionSuccess()) {
-                if (plugin.getConfig().getBoolean("debug", false)) {
-                    plugin.getLogger().info("Withdrew " + amount + " from " + player.getName() + ". New balance: " + response.balance);
+            success = response.transactionSuccess();
+            if (success) {
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Withdrew " + Money.format(amount) + " from " + player.getName() + ". New balance: " + response.balance);
                 }
                 return true;
             } else {
-                plugin.getLogger().warning("Failed to withdraw " + amount + " from " + player.getName() + ": " + response.errorMessage);
+                plugin.getLogger().warning("Failed to withdraw " + Money.format(amount) + " from " + player.getName() + ": " + response.errorMessage);
                 return false;
             }
         } catch (Exception e) {
             plugin.getLogger().warning("Exception during withdrawal for player " + player.getName() + ": " + e.getMessage());
             return false;
+        } finally {
+            withdrawStats.record(System.nanoTime() - start, success);
         }
     }
     
     /**
      * 向玩家账户存入金额
      */
-    public boolean deposit(Player player, BigDecimal amount) {
+    public boolean deposit(Player player, long amount) {
         if (!isEconomyEnabled()) {
             return false;
         }
         
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (amount <= 0) {
             return false;
         }
         
+        long start = System.nanoTime();
+        boolean success = false;
         try {
-            net.milkbowl.vault.economy.EconomyResponse response = economy.depositPlayer(player, amount.doubleValue());
+            net.milkbowl.vault.economy.EconomyResponse response = economy.depositPlayer(player, Money.toDouble(amount));
             
-            if (response.transactionSuccess()) {
-                if (plugin.getConfig().getBoolean("debug", false)) {
-                    plugin.getLogger().info("Deposited " + amount + " to " + player.getName() + ". New balance: " + response.balance);
+            success = response.transactionSuccess();
+            if (success) {
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Deposited " + Money.format(amount) + " to " + player.getName() + ". New balance: " + response.balance);
                 }
                 return true;
             } else {
-                plugin.getLogger().warning("Failed to deposit " + amount + " to " + player.getName() + ": " + response.errorMessage);
+                plugin.getLogger().warning("Failed to deposit " + Money.format(amount) + " to " + player.getName() + ": " + response.errorMessage);
                 return false;
             }
         } catch (Exception e) {
             plugin.getLogger().warning("Exception during deposit for player " + player.getName() + ": " + e.getMessage());
             return false;
+        } finally {
+            depositStats.record(System.nanoTime() - start, success);
         }
     }
     
+    /**
+     * 异步扣款，不阻塞当前线程
+     *
+     * @return 扣款结果，在玩家所在的区域线程上完成
+     */
+    public CompletableFuture<Boolean> withdrawAsync(Player player, long amount) {
+        return dispatcher.withdraw(player, amount);
+    }
+    
+    /**
+     * 异步存款；短时间内对同一玩家的多笔存款会合并为一次 Vault 调用
+     *
+     * @return 存款结果，在玩家所在的区域线程上完成
+     */
+    public CompletableFuture<Boolean> depositAsync(Player player, long amount) {
+        return dispatcher.deposit(player, amount, null, null);
+    }
+    
+    /**
+     * 异步存款，并把排队与 Vault 调用耗时记入领取追踪
+     *
+     * @param trace     领取追踪，未采样时为 null；调用后由经济线程写入，调用方不应再修改
+     * @param onSettled Vault 调用返回后立即在经济线程上执行，参数为是否成功；可为 null
+     */
+    public CompletableFuture<Boolean> depositAsync(Player player, long amount, ClaimTrace trace, Consumer<Boolean> onSettled) {
+        return dispatcher.deposit(player, amount, trace, onSettled);
+    }
+    
+    /**
+     * 发放合并中的存款并停止异步调度线程
+     */
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+    
+    public EconomyDispatcher getDispatcher() {
+        return dispatcher;
+    }
+    
+    public VaultCallStats getDepositStats() {
+        return depositStats;
+    }
+    
+    public VaultCallStats getWithdrawStats() {
+        return withdrawStats;
+    }
+    
     /**
      * 格式化金额显示
      */
-    public String formatAmount(BigDecimal amount) {
+    public String formatAmount(long amount) {
         if (!isEconomyEnabled()) {
-            return amount.toString();
+            return Money.format(amount);
         }
         
         try {
-            return economy.format(amount.doubleValue());
+            return economy.format(Money.toDouble(amount));
         } catch (Exception e) {
-            return amount.toString();
+            return Money.format(amount);
         }
     }
     
@@ -194,16 +264,15 @@ public class EconomyManager {
     
     /**
      * 验证金额格式
+     *
+     * @return 金额（分），无效时返回 0
      */
-    public BigDecimal parseAmount(String amountStr) {
+    public long parseAmount(String amountStr) {
         try {
-            BigDecimal amount = new BigDecimal(amountStr).setScale(2, RoundingMode.HALF_UP);
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                return null;
-            }
-            return amount;
-        } catch (NumberFormatException e) {
-            return null;
+            long amount = Money.parse(amountStr);
+            return Math.max(amount, 0);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return 0;
         }
     }
     
@@ -221,4 +290,63 @@ public class EconomyManager {
             return null;
         }
     }
+    
+    /**
+     * Vault 调用统计（次数、失败数、耗时）
+     * Vault Call Statistics
+     */
+    public static final class VaultCallStats {
+        private final long startNanos = System.nanoTime();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        // 导出到指标的耗时分布
+        private final Histogram latency;
+        
+        VaultCallStats(Histogram latency) {
+            this.latency = latency;
+        }
+        
+        void record(long nanos, boolean success) {
+            calls.increment();
+            latency.observeNanos(nanos);
+            if (!success) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+        
+        public long getCalls() {
+            return calls.sum();
+        }
+        
+        public long getFailures() {
+            return failures.sum();
+        }
+        
+        /**
+         * 平均耗时（毫秒）
+         */
+        public double getAverageMillis() {
+            long count = calls.sum();
+            return count == 0 ? 0 : totalNanos.sum() / (double) count / 1_000_000;
+        }
+        
+        /**
+         * 最大耗时（毫秒）
+         */
+        public double getMaxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+        
+        /**
+         * 自启动以来的平均吞吐量（次/秒）
+         */
+        public double getCallsPerSecond() {
+            double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            return seconds <= 0 ? 0 : calls.sum() / seconds;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.bSHongbao.manager;
+
+/**
+ * 可配置的消息
+ * Configurable Messages
+ * <p>
+ * 每条消息声明配置路径、默认文本（配置缺失时使用）和占位符；占位符的声明顺序即渲染参数的顺序。
+ */
+public enum Message {
+    // 聊天消息
+    PACKET_SENT("messages.chat.packet-sent", "&e{player} &f发了一个&c【{type}】&f红包，&a[点击领取]",
+            "{player}", "{type}", "[点击领取]"),
+    PACKET_SENT_BATCH("messages.chat.packet-sent-batch", "&e{player} &f发了 &e{count} &f个红包，合计 &a{amount}&f，点击编号领取：",
+            "{player}", "{count}", "{amount}"),
+    PACKET_CLAIMED_BROADCAST("messages.chat.packet-claimed", "&e{claimer} &f领了 &e{sender} &f的&c【{type}】&f红包，金额 &a{amount}",
+            "{claimer}", "{sender}", "{type}", "{amount}"),
+    PACKET_CLAIMED_DIGEST("messages.chat.packet-claimed-digest",
+            "&e{claimers} &f共 &e{count} &f人领了 &e{sender} &f的&c【{type}】&f红包，合计 &a{amount}&f，剩余 &e{remaining} &f份",
+            "{claimers}", "{count}", "{sender}", "{type}", "{amount}", "{remaining}"),
+    PACKET_EXPIRED("messages.chat.packet-expired", "&6您的红包已过期，退还金额 &a{amount} &6到您的账户", "{amount}"),
+    CLAIM_RETRY_PAID("messages.chat.claim-retry-paid", "&a您之前领取红包时未能到账的 &6{amount} &a已补发到您的账户", "{amount}"),
+
+    // 错误消息
+    NO_PERMISSION("messages.errors.no-permission", "&c您没有权限使用此命令！"),
+    ECONOMY_DISABLED("messages.errors.economy-disabled", "&c经济系统未启用！"),
+    INSUFFICIENT_FUNDS("messages.errors.insufficient-funds", "&c余额不足！需要 {amount}", "{amount}"),
+    INVALID_AMOUNT("messages.errors.invalid-amount", "&c请输入有效的金额！"),
+    INVALID_COUNT("messages.errors.invalid-count", "&c请输入有效的份数！"),
+    AMOUNT_TOO_LOW("messages.errors.amount-too-low", "&c红包总金额不能低于 {min}", "{min}"),
+    COUNT_TOO_HIGH("messages.errors.count-too-high", "&c红包份数不能超过 {max}", "{max}"),
+    ALREADY_CLAIMED("messages.errors.already-claimed", "&c您已经领取过这个红包了！"),
+    OWN_PACKET("messages.errors.own-packet", "&c不能领取自己发的红包！"),
+    PACKET_NOT_FOUND("messages.errors.packet-not-found", "&c红包不存在或已过期！"),
+    PACKET_EMPTY("messages.errors.packet-empty", "&c红包已被领完！"),
+    INPUT_TIMEOUT("messages.errors.input-timeout", "&c输入超时，请重新开始！"),
+    SYSTEM_ERROR("messages.errors.system-error", "&c系统错误，请联系管理员！"),
+    RELOAD_ERROR("messages.errors.reload-error", "&c配置文件重载失败,请查看控制台输出信息!"),
+
+    // 成功消息
+    PACKET_CREATED("messages.success.packet-created", "&a成功创建红包！总金额: &6{amount} &a份数: &e{count}",
+            "{amount}", "{count}"),
+    PACKET_CLAIMED("messages.success.packet-claimed", "&a恭喜！您领取了 &6{amount} &a的红包！", "{amount}"),
+    CREATION_CANCELLED("messages.success.creation-cancelled", "&a已取消红包创建"),
+    RELOAD_SUCCESS("messages.success.reload-success", "&a配置文件已重新加载！"),
+
+    // 输入提示
+    ENTER_AMOUNT("messages.prompts.enter-amount", "&e请在聊天栏输入红包总金额："),
+    ENTER_COUNT("messages.prompts.enter-count", "&e请在聊天栏输入红包份数："),
+    CANCEL_HINT("messages.prompts.cancel-hint", "&7输入 'cancel' 取消操作");
+
+    private final String path;
+    private final String defaultText;
+    private final String[] placeholders;
+
+    Message(String path, String defaultText, String... placeholders) {
+        this.path = path;
+        this.defaultText = defaultText;
+        this.placeholders = placeholders;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getDefaultText() {
+        return defaultText;
+    }
+
+    /**
+     * 获取占位符（按参数顺序）
+     */
+    public String[] getPlaceholders() {
+        return placeholders.clone();
+    }
+}
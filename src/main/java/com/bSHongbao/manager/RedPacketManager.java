@@ -1,13 +1,24 @@
 package com.bSHongbao.manager;
 
 import com.bSHongbao.BSHongbao;
+import com.bSHongbao.api.RedPacketSpec;
+import com.bSHongbao.metrics.ClaimTrace;
 import com.bSHongbao.model.RedPacket;
+import com.bSHongbao.model.RefundLedger;
+import com.bSHongbao.storage.AuditLog;
+import com.bSHongbao.storage.PacketJournal;
+import com.bSHongbao.util.ConcurrentLongMap;
+import com.bSHongbao.util.Money;
+import com.bSHongbao.util.PacketIds;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.math.BigDecimal;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 红包管理器
@@ -15,56 +26,173 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class RedPacketManager {
     private final BSHongbao plugin;
-    private final Map<String, RedPacket> activePackets;
-    private final Map<String, List<String>> playerPendingRefunds;
+    // 以数字 ID 为键的活跃红包索引（读取无锁、无装箱）
+    private final ConcurrentLongMap<RedPacket> activePackets;
+    private final RefundLedger refundLedger;
+    // 按到期时间排序的过期索引，只有到期的条目才会被取出
+    private final DelayQueue<PacketDeadline> expiryQueue;
+    // 预写日志，database.type 不为 file 时为 null
+    private PacketJournal journal;
     
     public RedPacketManager(BSHongbao plugin) {
         this.plugin = plugin;
-        this.activePackets = new ConcurrentHashMap<>();
-        this.playerPendingRefunds = new ConcurrentHashMap<>();
+        this.activePackets = new ConcurrentLongMap<>();
+        this.refundLedger = new RefundLedger();
+        this.expiryQueue = new DelayQueue<>();
         
         // 过期检查由 RedPacketTask 统一调度，避免重复处理
+        loadJournal();
+    }
+    
+    /**
+     * 重放预写日志恢复红包与待退款，然后打开日志继续记录
+     */
+    private void loadJournal() {
+        String type = plugin.getConfigManager().getDatabaseType();
+        if (!"file".equalsIgnoreCase(type)) {
+            plugin.getLogger().warning("Database type '" + type + "' is not supported, red packets will only be kept in memory");
+            return;
+        }
+        
+        File file = new File(plugin.getDataFolder(), plugin.getConfigManager().getFileDatabasePath());
+        try {
+            PacketJournal.Snapshot snapshot = PacketJournal.replay(file.toPath(), plugin.getLogger());
+            
+            for (PacketJournal.PacketImage image : snapshot.getLivePackets()) {
+                RedPacket packet = image.toRedPacket();
+                activePackets.put(packet.getId(), packet);
+                expiryQueue.offer(new PacketDeadline(packet.getId(), packet.getExpireTime() + 1));
+                PacketIds.advancePast(packet.getId());
+            }
+            for (Map.Entry<String, Long> refund : snapshot.getPendingRefunds().entrySet()) {
+                refundLedger.add(UUID.fromString(refund.getKey()), RefundLedger.Kind.REFUND, "journal", refund.getValue());
+            }
+            for (Map.Entry<String, Long> retry : snapshot.getPendingClaimRetries().entrySet()) {
+                refundLedger.add(UUID.fromString(retry.getKey()), RefundLedger.Kind.CLAIM_RETRY, "journal", retry.getValue());
+            }
+            
+            journal = PacketJournal.open(file.toPath(), plugin.getLogger(),
+                    plugin.getConfigManager().getJournalFlushIntervalMillis(),
+                    activePackets.values(), snapshot.getPendingRefunds(), snapshot.getPendingClaimRetries());
+            
+            if (!activePackets.isEmpty() || !refundLedger.isEmpty()) {
+                plugin.getLogger().info("Restored " + activePackets.size() + " red packet(s) and "
+                        + refundLedger.size() + " pending refund(s) from journal");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to open red packet journal " + file + ": " + e.getMessage()
+                    + ", red packets will only be kept in memory");
+        }
+    }
+    
+    /**
+     * 关闭预写日志（插件关闭时调用）
+     */
+    public void closeJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
     }
     
     /**
      * 创建红包
+     *
+     * @param totalAmount 总金额（分）
      */
     public RedPacket createRedPacket(String senderId, String senderName, 
                                    RedPacket.RedPacketType type, 
-                                   BigDecimal totalAmount, int count) {
-        long expireMinutes = plugin.getConfig().getLong("redpacket.expiration-minutes", 5);
-        RedPacket packet = new RedPacket(senderId, senderName, type, totalAmount, count, expireMinutes);
-        activePackets.put(packet.getId(), packet);
+                                   long totalAmount, int count) {
+        return createRedPackets(senderId, senderName, List.of(new RedPacketSpec(type, totalAmount, count))).get(0);
+    }
+    
+    /**
+     * 批量创建红包（金额已由调用方扣除）
+     * 先构造全部红包，再作为一批写入日志，最后一次写入活跃索引和过期索引；
+     * 构造过程中抛出异常时日志中没有任何记录，调用方可以安全地全额退款
+     *
+     * @return 创建的红包，顺序与 specs 相同
+     */
+    public List<RedPacket> createRedPackets(String senderId, String senderName, List<RedPacketSpec> specs) {
+        long expireMinutes = plugin.getConfigManager().getExpirationMinutes();
+        int lazyThreshold = plugin.getConfigManager().getLazyGenerationThreshold();
+        List<RedPacket> packets = new ArrayList<>(specs.size());
+        long[] ids = new long[specs.size()];
+        List<PacketDeadline> deadlines = new ArrayList<>(specs.size());
+        
+        for (RedPacketSpec spec : specs) {
+            // 超大拼手气红包不预先生成全部金额，内存随领取增长
+            boolean lazyShares = spec.count() > lazyThreshold;
+            RedPacket packet = new RedPacket(senderId, senderName, spec.type(), spec.totalAmount(), spec.count(),
+                    expireMinutes, lazyShares);
+            ids[packets.size()] = packet.getId();
+            packets.add(packet);
+            // isExpired() 要求当前时间严格大于 expireTime，因此到期点取 expireTime + 1
+            deadlines.add(new PacketDeadline(packet.getId(), packet.getExpireTime() + 1));
+        }
+        
+        if (journal != null) {
+            journal.appendCreates(packets);
+        }
+        activePackets.putAll(ids, packets);
+        expiryQueue.addAll(deadlines);
+        
+        for (RedPacket packet : packets) {
+            plugin.getAuditLog().record(AuditLog.Type.CREATE, packet.getId(), senderName, senderId, packet.getTotalAmount(),
+                    packet.getType().name() + " x" + packet.getTotalCount());
+            plugin.getMetrics().recordCreate(packet.getTotalAmount());
+        }
         
-        if (plugin.getConfig().getBoolean("debug", false)) {
-            plugin.getLogger().info("Created red packet: " + packet.getId() + " by " + senderName);
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Created " + packets.size() + " red packet(s) by " + senderName);
         }
         
-        return packet;
+        return packets;
     }
     
     /**
      * 领取红包
+     *
+     * @return 领到的金额（分），失败时返回 {@link RedPacket#NOT_CLAIMED}
+     */
+    public long claimRedPacket(long packetId, String playerId) {
+        return claimRedPacket(packetId, playerId, null);
+    }
+    
+    /**
+     * 领取红包并记录各阶段耗时
+     *
+     * @param trace 领取追踪，未采样时为 null
+     * @return 领到的金额（分），失败时返回 {@link RedPacket#NOT_CLAIMED}
      */
-    public BigDecimal claimRedPacket(String packetId, String playerId) {
+    public long claimRedPacket(long packetId, String playerId, ClaimTrace trace) {
         RedPacket packet = activePackets.get(packetId);
         if (packet == null) {
-            return null;
+            return RedPacket.NOT_CLAIMED;
         }
         
         if (packet.isExpired()) {
             // 使用原子移除与处理，避免重复退款
             processExpiredPacket(packetId);
-            return null;
+            return RedPacket.NOT_CLAIMED;
         }
         
-        BigDecimal amount = packet.claim(playerId);
+        long amount = packet.claim(playerId);
+        if (trace != null) {
+            trace.mark(ClaimTrace.Stage.PACKET_CLAIM);
+        }
+        if (amount != RedPacket.NOT_CLAIMED && journal != null) {
+            journal.appendClaim(packetId, playerId, amount);
+            if (trace != null) {
+                trace.mark(ClaimTrace.Stage.JOURNAL);
+            }
+        }
         
         // 如果红包被领完，从活跃列表中移除
         if (packet.isFullyClaimed()) {
             activePackets.remove(packetId);
-            if (plugin.getConfig().getBoolean("debug", false)) {
-                plugin.getLogger().info("Red packet " + packetId + " fully claimed");
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Red packet " + PacketIds.encode(packetId) + " fully claimed");
             }
         }
         
@@ -74,14 +202,14 @@ public class RedPacketManager {
     /**
      * 获取红包
      */
-    public RedPacket getRedPacket(String packetId) {
+    public RedPacket getRedPacket(long packetId) {
         return activePackets.get(packetId);
     }
     
     /**
      * 检查红包是否存在
      */
-    public boolean hasRedPacket(String packetId) {
+    public boolean hasRedPacket(long packetId) {
         return activePackets.containsKey(packetId);
     }
     
@@ -89,7 +217,7 @@ public class RedPacketManager {
      * 处理过期红包（原子）
      * 通过从 activePackets 中原子移除，确保只处理一次，避免重复退款
      */
-    public void processExpiredPacket(String packetId) {
+    public void processExpiredPacket(long packetId) {
         RedPacket packet = activePackets.remove(packetId);
         if (packet == null) {
             return; // 已被其他流程处理
@@ -97,8 +225,9 @@ public class RedPacketManager {
         
         // 再次校验过期状态（防止非过期被误处理）
         if (!packet.isExpired()) {
-            // 放回 map（如果此刻又被领取完也没关系）
+            // 放回 map（如果此刻又被领取完也没关系），并重新登记到期点，否则之后不会再被过期处理
             activePackets.putIfAbsent(packetId, packet);
+            expiryQueue.offer(new PacketDeadline(packetId, packet.getExpireTime() + 1));
             return;
         }
         
@@ -109,100 +238,142 @@ public class RedPacketManager {
      * 实际的过期处理逻辑
      */
     private void handleExpiredPacket(RedPacket packet) {
-        if (packet.getRemainingAmount().compareTo(BigDecimal.ZERO) > 0) {
-            // 添加到待退还列表
-            playerPendingRefunds.computeIfAbsent(packet.getSenderId(), k -> new ArrayList<>())
-                    .add(packet.getId() + ":" + packet.getRemainingAmount().toString());
+        // 先封存再记录：退款金额只包含封存时仍未被领取的部分，并发领取不会与退款重复
+        long remainingAmount = packet.seal();
+        plugin.getMetrics().recordExpiry(System.currentTimeMillis() - packet.getExpireTime());
+        if (journal != null) {
+            journal.appendExpire(packet.getId(), packet.getSenderId(), remainingAmount);
+        }
+        if (remainingAmount > 0) {
+            // 添加到待退款账本
+            UUID senderId = UUID.fromString(packet.getSenderId());
+            refundLedger.add(senderId, RefundLedger.Kind.REFUND, packet.getShortId(), remainingAmount);
             
             // 如果玩家在线，立即退还
-            Player sender = Bukkit.getPlayer(UUID.fromString(packet.getSenderId()));
+            Player sender = Bukkit.getPlayer(senderId);
             if (sender != null && sender.isOnline()) {
                 processRefund(sender);
             }
         }
         
-        packet.setExpired();
-        
-        if (plugin.getConfig().getBoolean("debug", false)) {
-            plugin.getLogger().info("Red packet " + packet.getId() + " expired");
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Red packet " + packet.getShortId() + " expired");
         }
     }
     
     /**
      * 处理玩家上线时的退款
+     * 先从账本原子取走全部待退款再存款，并发调用时只有一方能取到，避免重复退款
      */
     public void processRefund(Player player) {
-        String playerId = player.getUniqueId().toString();
-        List<String> refunds = playerPendingRefunds.get(playerId);
+        UUID playerId = player.getUniqueId();
+        RefundLedger.Entry refund = refundLedger.drain(playerId);
         
-        if (refunds == null || refunds.isEmpty()) {
+        if (refund == null) {
             return;
         }
         
-        BigDecimal totalRefund = BigDecimal.ZERO;
-        for (String refundData : refunds) {
-            String[] parts = refundData.split(":");
-            if (parts.length == 2) {
-                BigDecimal amount = new BigDecimal(parts[1]);
-                totalRefund = totalRefund.add(amount);
-            }
-        }
+        long totalRefund = refund.total();
         
-        if (totalRefund.compareTo(BigDecimal.ZERO) > 0) {
-            // 退还金额
-            if (plugin.getEconomyManager().deposit(player, totalRefund)) {
-                String message = plugin.getConfigManager().getMessage("messages.chat.packet-expired")
-                        .replace("{amount}", totalRefund.toString());
-                player.sendMessage(message);
+        // 退还金额（异步，完成后回到玩家所在线程）
+        plugin.getEconomyManager().depositAsync(player, totalRefund).thenAccept(success -> {
+            if (success) {
+                if (journal != null) {
+                    journal.appendRefundPaid(playerId.toString(), refund.refundAmount(), refund.claimRetryAmount());
+                }
+                plugin.getAuditLog().record(AuditLog.Type.REFUND, 0L, player.getName(), playerId.toString(),
+                        totalRefund, refund.count() + " packet(s)");
+                plugin.getMetrics().recordRefund(totalRefund);
                 
-                // 清除退款记录
-                playerPendingRefunds.remove(playerId);
+                // 过期退款与领取补发分别提示
+                if (refund.refundAmount() > 0) {
+                    player.sendMessage(plugin.getConfigManager().format(Message.PACKET_EXPIRED, Money.format(refund.refundAmount())));
+                }
+                if (refund.claimRetryAmount() > 0) {
+                    player.sendMessage(plugin.getConfigManager().format(Message.CLAIM_RETRY_PAID, Money.format(refund.claimRetryAmount())));
+                }
                 
-                if (plugin.getConfig().getBoolean("debug", false)) {
-                    plugin.getLogger().info("Refunded " + totalRefund + " to " + player.getName());
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Refunded " + Money.format(totalRefund) + " (" + refund.count()
+                            + " packet(s)) to " + player.getName());
                 }
             } else {
-                // 如果存款失败，记录警告
+                // 存款失败，放回账本等待下次重试
+                refundLedger.restore(playerId, refund);
+                plugin.getAuditLog().record(AuditLog.Type.DEPOSIT_FAILED, 0L, player.getName(), playerId.toString(),
+                        totalRefund, "refund");
+                plugin.getMetrics().recordDepositFailure("refund");
                 plugin.getLogger().warning("Failed to process refund for player " + player.getName());
             }
-        }
+        });
     }
     
     /**
-     * 获取过期的红包列表
+     * 处理所有已到期的红包
+     * 只取出到期的索引条目，开销与到期数量成正比；已领完的红包条目到期后自然丢弃
+     *
+     * @return 本次取出的到期条目数
      */
-    public List<RedPacket> getExpiredPackets() {
-        List<RedPacket> expiredPackets = new ArrayList<>();
-        
-        for (RedPacket packet : activePackets.values()) {
-            if (packet.isExpired()) {
-                expiredPackets.add(packet);
-            }
+    public int processDueExpirations() {
+        int processed = 0;
+        PacketDeadline deadline;
+        while ((deadline = expiryQueue.poll()) != null) {
+            processExpiredPacket(deadline.packetId());
+            processed++;
         }
-        
-        return expiredPackets;
+        return processed;
     }
     
     /**
      * 移除红包
      */
-    public void removeRedPacket(String packetId) {
+    public void removeRedPacket(long packetId) {
         activePackets.remove(packetId);
         
-        if (plugin.getConfig().getBoolean("debug", false)) {
-            plugin.getLogger().info("Removed red packet: " + packetId);
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Removed red packet: " + PacketIds.encode(packetId));
         }
     }
     
     /**
      * 添加待退款
+     *
+     * @param sourceId 退款来源 ID
+     * @param amount   金额（分）
      */
-    public void addPendingRefund(String playerId, BigDecimal amount) {
-        playerPendingRefunds.computeIfAbsent(playerId, k -> new ArrayList<>())
-                .add(UUID.randomUUID().toString() + ":" + amount.toString());
+    public void addPendingRefund(UUID playerId, String sourceId, long amount) {
+        if (journal != null) {
+            journal.appendPendingRefund(playerId.toString(), amount);
+        }
+        refundLedger.add(playerId, RefundLedger.Kind.REFUND, sourceId, amount);
         
-        if (plugin.getConfig().getBoolean("debug", false)) {
-            plugin.getLogger().info("Added pending refund of " + amount + " for player " + playerId);
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Added pending refund of " + Money.format(amount) + " for player " + playerId);
+        }
+    }
+    
+    /**
+     * 记录领取存款的结果（在经济线程上、Vault 调用返回后立即调用）
+     * 成功时记录到账；失败时转为领取者的待补发金额，由退款重试补发
+     *
+     * @param amount 金额（分）
+     */
+    public void settleClaim(long packetId, UUID playerId, long amount, boolean paid) {
+        if (paid) {
+            if (journal != null) {
+                journal.appendClaimPaid(packetId, playerId.toString());
+            }
+            return;
+        }
+        
+        if (journal != null) {
+            journal.appendClaimDeferred(packetId, playerId.toString());
+        }
+        refundLedger.add(playerId, RefundLedger.Kind.CLAIM_RETRY, PacketIds.encode(packetId), amount);
+        
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Queued " + Money.format(amount) + " from red packet " + PacketIds.encode(packetId)
+                    + " for another deposit to player " + playerId);
         }
     }
     
@@ -210,12 +381,8 @@ public class RedPacketManager {
      * 处理所有退款（插件关闭时调用）
      */
     public void processAllRefunds() {
-        // 处理所有过期红包
-        List<RedPacket> expiredPackets = getExpiredPackets();
-        for (RedPacket packet : expiredPackets) {
-            // 使用统一的原子处理
-            processExpiredPacket(packet.getId());
-        }
+        // 处理所有过期红包（统一的原子处理）
+        processDueExpirations();
         
         // 尝试为在线玩家处理退款
         for (Player player : plugin.getServer().getOnlinePlayers()) {
@@ -223,8 +390,8 @@ public class RedPacketManager {
         }
         
         // 记录未处理的退款
-        if (!playerPendingRefunds.isEmpty()) {
-            plugin.getLogger().info("There are " + playerPendingRefunds.size() + " players with pending refunds that will be processed when they come online.");
+        if (!refundLedger.isEmpty()) {
+            plugin.getLogger().info("There are " + refundLedger.size() + " players with pending refunds that will be processed when they come online.");
         }
     }
     
@@ -235,40 +402,59 @@ public class RedPacketManager {
         return activePackets.size();
     }
     
+    /**
+     * 获取活跃红包中尚未领取的总金额（分），即当前托管的金额
+     */
+    public long getEscrowedAmount() {
+        long total = 0;
+        for (RedPacket packet : activePackets.values()) {
+            total += packet.getRemainingAmount();
+        }
+        return total;
+    }
+    
+    /**
+     * 获取过期索引中的条目数（含已领完、到期后才丢弃的条目）
+     */
+    public int getExpiryQueueSize() {
+        return expiryQueue.size();
+    }
+    
     /**
      * 获取所有活跃红包
      */
     public Collection<RedPacket> getActivePackets() {
-        return new ArrayList<>(activePackets.values());
+        return activePackets.values();
     }
     
     /**
      * 获取玩家待退款数量
      */
-    public int getPendingRefundCount(String playerId) {
-        List<String> refunds = playerPendingRefunds.get(playerId);
-        return refunds != null ? refunds.size() : 0;
+    public int getPendingRefundCount(UUID playerId) {
+        RefundLedger.Entry refund = refundLedger.get(playerId);
+        return refund != null ? refund.count() : 0;
     }
     
     /**
-     * 获取玩家待退款总金额
+     * 获取玩家待退款总金额（分）
      */
-    public BigDecimal getPendingRefundAmount(String playerId) {
-        List<String> refunds = playerPendingRefunds.get(playerId);
-        if (refunds == null || refunds.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        for (String refundData : refunds) {
-            String[] parts = refundData.split(":");
-            if (parts.length == 2) {
-                BigDecimal amount = new BigDecimal(parts[1]);
-                totalAmount = totalAmount.add(amount);
-            }
-        }
-        
-        return totalAmount;
+    public long getPendingRefundAmount(UUID playerId) {
+        RefundLedger.Entry refund = refundLedger.get(playerId);
+        return refund != null ? refund.total() : 0;
+    }
+    
+    /**
+     * 获取所有玩家待退款总金额（分）
+     */
+    public long getPendingRefundTotal() {
+        return refundLedger.totalAmount();
+    }
+    
+    /**
+     * 获取有待退款的玩家数量
+     */
+    public int getPendingRefundPlayerCount() {
+        return refundLedger.size();
     }
     
     /**
@@ -281,8 +467,23 @@ public class RedPacketManager {
         // 清理数据
         activePackets.clear();
         
-        if (plugin.getConfig().getBoolean("debug", false)) {
+        if (plugin.getConfigManager().isDebugEnabled()) {
             plugin.getLogger().info("RedPacketManager cleanup completed");
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 过期索引条目
+     */
+    private record PacketDeadline(long packetId, long deadlineMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineMillis, ((PacketDeadline) other).deadlineMillis);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.bSHongbao.manager;
+
+import com.bSHongbao.BSHongbao;
+import com.bSHongbao.api.RedPacketCreationException;
+import com.bSHongbao.api.RedPacketService;
+import com.bSHongbao.api.RedPacketSpec;
+import com.bSHongbao.model.RedPacket;
+import com.bSHongbao.util.Money;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 红包服务实现
+ * Red Packet Service Implementation
+ * <p>
+ * 流程与界面创建相同：校验 → 异步扣款托管 → 创建 → 广播。批量创建时合计金额只扣一次，
+ * 红包一次写入索引并合并为一条广播；扣款后创建失败时金额记入待退款账本退还。
+ */
+public class RedPacketServiceImpl implements RedPacketService {
+    private final BSHongbao plugin;
+
+    public RedPacketServiceImpl(BSHongbao plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public CompletableFuture<RedPacket> createPacket(Player sender, RedPacketSpec spec) {
+        return createPackets(sender, List.of(spec)).thenApply(packets -> packets.get(0));
+    }
+
+    @Override
+    public CompletableFuture<List<RedPacket>> createPackets(Player sender, List<RedPacketSpec> specs) {
+        Objects.requireNonNull(sender, "sender");
+        List<RedPacketSpec> batch = List.copyOf(specs);
+
+        long total;
+        try {
+            total = validate(batch);
+        } catch (RedPacketCreationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!plugin.getEconomyManager().isEconomyEnabled()) {
+            return CompletableFuture.failedFuture(new RedPacketCreationException(
+                    RedPacketCreationException.Reason.ECONOMY_DISABLED, "Economy is not available"));
+        }
+
+        // 扣款完成后在发送者所在线程上继续
+        return plugin.getEconomyManager().withdrawAsync(sender, total).thenCompose(success -> {
+            if (!success) {
+                return CompletableFuture.failedFuture(new RedPacketCreationException(
+                        RedPacketCreationException.Reason.INSUFFICIENT_FUNDS,
+                        "Failed to withdraw " + Money.format(total) + " from " + sender.getName()));
+            }
+            return CompletableFuture.completedFuture(createAndBroadcast(sender, batch, total));
+        });
+    }
+
+    /**
+     * 创建并广播已扣款的红包
+     */
+    private List<RedPacket> createAndBroadcast(Player sender, List<RedPacketSpec> batch, long total) {
+        List<RedPacket> packets;
+        try {
+            packets = plugin.getRedPacketManager().createRedPackets(sender.getUniqueId().toString(), sender.getName(), batch);
+        } catch (RuntimeException e) {
+            // 已扣的金额退还给发送者
+            plugin.getLogger().severe("Failed to create " + batch.size() + " red packet(s) for " + sender.getName()
+                    + ", refunding " + Money.format(total) + ": " + e.getMessage());
+            plugin.getRedPacketManager().addPendingRefund(sender.getUniqueId(), "service", total);
+            plugin.getRedPacketManager().processRefund(sender);
+            throw e;
+        }
+
+        plugin.getChatManager().broadcastRedPackets(packets);
+
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Service created " + packets.size() + " red packet(s) worth "
+                    + Money.format(total) + " for " + sender.getName());
+        }
+        return packets;
+    }
+
+    /**
+     * 按配置校验整批参数
+     *
+     * @return 合计金额（分）
+     */
+    private long validate(List<RedPacketSpec> batch) {
+        if (batch.isEmpty()) {
+            throw invalid("No red packets requested");
+        }
+
+        long minAmount = plugin.getConfigManager().getMinTotalAmount();
+        // 配置无效（小于等于 0）时退回到每份 1 分
+        long minSingleAmount = Math.max(RedPacket.MIN_SHARE_CENTS, plugin.getConfigManager().getMinSingleAmount());
+        int maxCount = plugin.getConfigManager().getMaxPacketCount();
+        long total = 0;
+        for (RedPacketSpec spec : batch) {
+            if (spec.count() <= 0 || spec.count() > maxCount) {
+                throw invalid("Share count " + spec.count() + " is outside 1.." + maxCount);
+            }
+            if (spec.totalAmount() < minAmount) {
+                throw invalid("Amount " + Money.format(spec.totalAmount()) + " is below the minimum " + Money.format(minAmount));
+            }
+            // 每份至少为配置的最小单份金额
+            long minForShares;
+            try {
+                minForShares = Math.multiplyExact(spec.count(), minSingleAmount);
+            } catch (ArithmeticException e) {
+                throw invalid("Minimum amount for " + spec.count() + " shares overflows");
+            }
+            if (spec.totalAmount() < minForShares) {
+                throw invalid("Amount " + Money.format(spec.totalAmount()) + " is too small for " + spec.count()
+                        + " shares of at least " + Money.format(minSingleAmount));
+            }
+            try {
+                total = Math.addExact(total, spec.totalAmount());
+            } catch (ArithmeticException e) {
+                throw invalid("Total amount overflows");
+            }
+        }
+        return total;
+    }
+
+    private static RedPacketCreationException invalid(String message) {
+        return new RedPacketCreationException(RedPacketCreationException.Reason.INVALID_REQUEST, message);
+    }
+}
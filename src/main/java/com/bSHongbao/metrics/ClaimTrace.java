@@ -0,0 +1,121 @@
+package com.bSHongbao.metrics;
+
+/**
+ * 单次领取的分阶段耗时
+ * Claim Trace
+ * <p>
+ * 每次 {@link #mark(Stage)} 把距上一次标记的时间记到给定阶段。追踪对象随领取流程在线程间传递
+ * （区域线程 → 经济线程 → 区域线程），交接都经过执行器或 CompletableFuture，不需要额外同步；
+ * 同一时刻只有一个线程在写。
+ */
+public final class ClaimTrace {
+    /**
+     * 领取流程的阶段
+     */
+    public enum Stage {
+        /** 限流与进行中检查 */
+        RATE_LIMIT("limit"),
+        /** 查找红包与归属检查 */
+        LOOKUP("lookup"),
+        /** 红包内部的原子领取 */
+        PACKET_CLAIM("claim"),
+        /** 写入预写日志 */
+        JOURNAL("journal"),
+        /** 审计、指标与提交存款 */
+        DISPATCH("dispatch"),
+        /** 存款在合并窗口与经济线程队列中等待 */
+        DEPOSIT_QUEUE("deposit-queue"),
+        /** Vault depositPlayer 调用 */
+        VAULT_DEPOSIT("vault"),
+        /** 存款结果回到玩家所在线程 */
+        CALLBACK("callback"),
+        /** 领取消息与广播 */
+        BROADCAST("broadcast");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final long packetId;
+    private final String playerName;
+    private final long startMillis;
+    private final long startNanos;
+    private final long[] stageNanos = new long[Stage.values().length];
+    private long lastNanos;
+    private long totalNanos;
+    private String outcome;
+
+    ClaimTrace(long packetId, String playerName) {
+        this.packetId = packetId;
+        this.playerName = playerName;
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+    }
+
+    /**
+     * 结束一个阶段：把距上一次标记的时间记到该阶段
+     */
+    public void mark(Stage stage) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - lastNanos;
+        lastNanos = now;
+    }
+
+    /**
+     * 结束追踪（由 {@link ClaimTracer#finish(ClaimTrace, String)} 调用）
+     */
+    void complete(String outcome) {
+        this.outcome = outcome;
+        this.totalNanos = System.nanoTime() - startNanos;
+    }
+
+    public long getPacketId() {
+        return packetId;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * 格式化各阶段耗时，省略未经过的阶段，例如 "limit 0.01ms, claim 0.02ms, vault 12.40ms"
+     */
+    public String formatStages() {
+        StringBuilder out = new StringBuilder(128);
+        for (Stage stage : Stage.values()) {
+            long nanos = stageNanos[stage.ordinal()];
+            if (nanos == 0) {
+                continue;
+            }
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(stage.getLabel()).append(' ').append(String.format("%.2fms", nanos / 1_000_000.0));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package com.bSHongbao.metrics;
+
+import com.bSHongbao.util.PacketIds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 领取追踪器
+ * Claim Tracer
+ * <p>
+ * 按采样率为领取创建 {@link ClaimTrace}；未采样的领取只多一次 volatile 读和一次随机数，
+ * 之后各阶段看到的追踪对象为 null，不再计时。完成的追踪写入固定大小的环形缓冲区
+ * （覆盖最旧的），超过阈值的领取连同各阶段耗时写入日志。
+ */
+public final class ClaimTracer {
+    private static final int RING_CAPACITY = 256;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+
+    private final Logger logger;
+    private final AtomicReferenceArray<ClaimTrace> ring = new AtomicReferenceArray<>(RING_CAPACITY);
+    private final AtomicLong recorded = new AtomicLong();
+    private final LongAdder slowClaims = new LongAdder();
+    private volatile Settings settings;
+
+    public ClaimTracer(Logger logger, double sampleRate, long slowThresholdMillis) {
+        this.logger = logger;
+        configure(sampleRate, slowThresholdMillis);
+    }
+
+    /**
+     * 更新采样参数（重载配置时调用）
+     *
+     * @param sampleRate          采样比例，0 关闭追踪，1 追踪每次领取
+     * @param slowThresholdMillis 超过该耗时的领取写入日志，小于等于 0 时不记录
+     */
+    public void configure(double sampleRate, long slowThresholdMillis) {
+        this.settings = new Settings(Math.max(0, Math.min(1, sampleRate)),
+                slowThresholdMillis > 0 ? slowThresholdMillis * 1_000_000L : Long.MAX_VALUE);
+    }
+
+    /**
+     * 按采样率开始追踪一次领取
+     *
+     * @return 追踪对象，未被采样时返回 null
+     */
+    public ClaimTrace start(long packetId, String playerName) {
+        double rate = settings.sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return null;
+        }
+        return new ClaimTrace(packetId, playerName);
+    }
+
+    /**
+     * 结束追踪：写入环形缓冲区，超过阈值时记录日志
+     *
+     * @param outcome 领取结果（如 CLAIMED、DEPOSIT_FAILED 或拒绝原因）
+     */
+    public void finish(ClaimTrace trace, String outcome) {
+        trace.complete(outcome);
+        ring.set((int) (recorded.getAndIncrement() & RING_MASK), trace);
+
+        if (trace.getTotalNanos() >= settings.slowThresholdNanos) {
+            slowClaims.increment();
+            logger.warning(String.format("Slow claim of red packet %s by %s took %.2fms (%s): %s",
+                    trace.getPacketId() < 0 ? "-" : PacketIds.encode(trace.getPacketId()), trace.getPlayerName(),
+                    trace.getTotalNanos() / 1_000_000.0, outcome, trace.formatStages()));
+        }
+    }
+
+    /**
+     * 获取最近完成的追踪，最新的在前
+     */
+    public List<ClaimTrace> recent(int limit) {
+        long end = recorded.get();
+        long start = Math.max(0, end - Math.min(limit, RING_CAPACITY));
+        List<ClaimTrace> traces = new ArrayList<>((int) (end - start));
+        for (long i = end - 1; i >= start; i--) {
+            ClaimTrace trace = ring.get((int) (i & RING_MASK));
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    /**
+     * 已完成的追踪总数
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    /**
+     * 超过阈值的领取数
+     */
+    public long getSlowClaimCount() {
+        return slowClaims.sum();
+    }
+
+    public double getSampleRate() {
+        return settings.sampleRate;
+    }
+
+    /**
+     * 采样参数（整体替换，读取时不会看到一半更新的值）
+     */
+    private record Settings(double sampleRate, long slowThresholdNanos) {
+    }
+}
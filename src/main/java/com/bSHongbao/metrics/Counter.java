@@ -0,0 +1,39 @@
+package com.bSHongbao.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 计数器
+ * Counter
+ * <p>
+ * 基于 {@link LongAdder}，多线程同时累加时各自写入不同的分段，不产生 CAS 竞争。
+ */
+public final class Counter implements Metric {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    public void write(StringBuilder out, String name, String labels) {
+        MetricsRegistry.appendName(out, name, labels).append(' ').append(get()).append('\n');
+    }
+
+    @Override
+    public void summarize(List<String> out, String displayName) {
+        out.add(displayName + " " + get());
+    }
+}
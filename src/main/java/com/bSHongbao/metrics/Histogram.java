@@ -0,0 +1,119 @@
+package com.bSHongbao.metrics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的耗时直方图
+ * Latency Histogram
+ * <p>
+ * 记录一次只做一次分桶查找和两次 {@link LongAdder} 累加；分桶上界以秒为单位导出。
+ */
+public final class Histogram implements Metric {
+    private final String[] boundLabels;
+    private final long[] boundNanos;
+    // 最后一个桶对应 +Inf
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * @param boundsSeconds 递增的分桶上界（秒）
+     */
+    Histogram(double[] boundsSeconds) {
+        this.boundLabels = new String[boundsSeconds.length];
+        this.boundNanos = new long[boundsSeconds.length];
+        for (int i = 0; i < boundsSeconds.length; i++) {
+            boundLabels[i] = MetricsRegistry.formatNumber(boundsSeconds[i]);
+            boundNanos[i] = (long) (boundsSeconds[i] * 1_000_000_000L);
+        }
+        this.buckets = new LongAdder[boundsSeconds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时（纳秒），负值按 0 处理
+     */
+    public void observeNanos(long nanos) {
+        long value = Math.max(0L, nanos);
+        int bucket = 0;
+        while (bucket < boundNanos.length && value > boundNanos[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(value);
+    }
+
+    /**
+     * 记录一次耗时（毫秒）
+     */
+    public void observeMillis(long millis) {
+        observeNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * 估算分位数：返回该分位所在分桶的上界（毫秒），落在最后一个桶时返回最大的有限上界
+     */
+    public double getQuantileUpperBoundMillis(double quantile) {
+        long[] counts = snapshot();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < boundNanos.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return boundNanos[i] / 1_000_000.0;
+            }
+        }
+        return boundNanos[boundNanos.length - 1] / 1_000_000.0;
+    }
+
+    private long[] snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public void write(StringBuilder out, String name, String labels) {
+        long[] counts = snapshot();
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i < boundLabels.length ? boundLabels[i] : "+Inf";
+            out.append(name).append("_bucket{").append(labels).append(separator)
+                    .append("le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        MetricsRegistry.appendName(out, name + "_sum", labels).append(' ')
+                .append(MetricsRegistry.formatNumber(sumNanos.sum() / 1_000_000_000.0)).append('\n');
+        MetricsRegistry.appendName(out, name + "_count", labels).append(' ').append(cumulative).append('\n');
+    }
+
+    @Override
+    public void summarize(List<String> out, String displayName) {
+        long count = getCount();
+        double averageMillis = count == 0 ? 0 : sumNanos.sum() / (double) count / 1_000_000;
+        out.add(String.format("%s count=%d avg=%.2fms p50<=%sms p99<=%sms", displayName, count, averageMillis,
+                MetricsRegistry.formatNumber(getQuantileUpperBoundMillis(0.50)),
+                MetricsRegistry.formatNumber(getQuantileUpperBoundMillis(0.99))));
+    }
+}
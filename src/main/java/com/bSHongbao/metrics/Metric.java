@@ -0,0 +1,20 @@
+package com.bSHongbao.metrics;
+
+import java.util.List;
+
+/**
+ * 注册表中的单个指标（计数器、直方图或仪表）
+ */
+interface Metric {
+    /**
+     * 以 Prometheus 文本格式写出样本行
+     *
+     * @param labels 已格式化的标签（不含花括号），没有标签时为空字符串
+     */
+    void write(StringBuilder out, String name, String labels);
+
+    /**
+     * 写出一行可读的摘要（供命令显示）
+     */
+    void summarize(List<String> out, String displayName);
+}
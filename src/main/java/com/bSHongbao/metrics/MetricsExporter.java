@@ -0,0 +1,91 @@
+package com.bSHongbao.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 指标文件导出器
+ * Metrics File Exporter
+ * <p>
+ * 在后台线程上定期把注册表写成 Prometheus 文本文件。先写临时文件再原子替换，
+ * node-exporter 的 textfile 收集器不会读到写了一半的文件。
+ */
+public final class MetricsExporter implements AutoCloseable {
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final Path tempFile;
+    private final long intervalSeconds;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private volatile boolean closed;
+
+    public MetricsExporter(MetricsRegistry registry, Path file, long intervalSeconds, Logger logger) {
+        this.registry = registry;
+        this.file = file;
+        // 收集器只读取 *.prom，临时文件不会被抓取
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.intervalSeconds = intervalSeconds;
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "BSHongbao-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 创建目录并开始定期导出
+     */
+    public void start() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        executor.scheduleWithFixedDelay(this::export, 0L, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 写出一次当前指标
+     */
+    private void export() {
+        try {
+            Files.writeString(tempFile, registry.toPrometheusText(), StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to write metrics file " + file, e);
+        }
+    }
+
+    /**
+     * 停止导出线程并写出最后一次指标
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Metrics exporter did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        export();
+    }
+}
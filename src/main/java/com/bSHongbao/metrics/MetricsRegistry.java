@@ -0,0 +1,186 @@
+package com.bSHongbao.metrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 指标注册表
+ * Metrics Registry
+ * <p>
+ * 指标按名称分组（同名不同标签值属于同一组），导出时按注册顺序输出 Prometheus 文本格式。
+ * 注册与导出加锁；记录数据只访问指标对象本身，不经过注册表。
+ */
+public final class MetricsRegistry {
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * 注册（或获取已注册的）无标签计数器
+     */
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    /**
+     * 注册（或获取已注册的）带一个标签的计数器
+     */
+    public synchronized Counter counter(String name, String help, String labelName, String labelValue) {
+        return (Counter) family(name, help, "counter", labelName).children
+                .computeIfAbsent(labelValue(labelValue), value -> new Counter());
+    }
+
+    /**
+     * 注册（或获取已注册的）无标签直方图
+     *
+     * @param boundsSeconds 递增的分桶上界（秒）
+     */
+    public Histogram histogram(String name, String help, double[] boundsSeconds) {
+        return histogram(name, help, boundsSeconds, null, null);
+    }
+
+    /**
+     * 注册（或获取已注册的）带一个标签的直方图
+     */
+    public synchronized Histogram histogram(String name, String help, double[] boundsSeconds,
+                                            String labelName, String labelValue) {
+        return (Histogram) family(name, help, "histogram", labelName).children
+                .computeIfAbsent(labelValue(labelValue), value -> new Histogram(boundsSeconds));
+    }
+
+    /**
+     * 注册无标签仪表，导出时调用 supplier 读取当前值
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier) {
+        gauge(name, help, null, null, supplier);
+    }
+
+    /**
+     * 注册带一个标签的仪表
+     */
+    public synchronized void gauge(String name, String help, String labelName, String labelValue, DoubleSupplier supplier) {
+        family(name, help, "gauge", labelName).children.put(labelValue(labelValue), new Gauge(supplier));
+    }
+
+    /**
+     * 以 Prometheus 文本格式（0.0.4）导出所有指标
+     */
+    public synchronized String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Metric> child : family.children.entrySet()) {
+                child.getValue().write(out, family.name, family.labels(child.getKey()));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 每个指标一行的可读摘要（省略公共前缀）
+     *
+     * @param prefix 显示时去掉的名称前缀
+     */
+    public synchronized List<String> summarize(String prefix) {
+        List<String> lines = new ArrayList<>();
+        for (Family family : families.values()) {
+            String shortName = family.name.startsWith(prefix) ? family.name.substring(prefix.length()) : family.name;
+            for (Map.Entry<String, Metric> child : family.children.entrySet()) {
+                String labels = family.labels(child.getKey());
+                child.getValue().summarize(lines, labels.isEmpty() ? shortName : shortName + "{" + labels + "}");
+            }
+        }
+        return lines;
+    }
+
+    private Family family(String name, String help, String type, String labelName) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type, labelName));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labelValue(String value) {
+        return value == null ? "" : value;
+    }
+
+    static StringBuilder appendName(StringBuilder out, String name, String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        return out;
+    }
+
+    /**
+     * 格式化数值：整数不带小数点，其余不使用科学计数法
+     */
+    static String formatNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.isNaN(value) ? "NaN" : value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 同名指标组
+     */
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String labelName;
+        private final Map<String, Metric> children = new LinkedHashMap<>();
+
+        private Family(String name, String help, String type, String labelName) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelName = labelName;
+        }
+
+        private String labels(String value) {
+            if (labelName == null) {
+                return "";
+            }
+            String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            return labelName + "=\"" + escaped + "\"";
+        }
+    }
+
+    /**
+     * 仪表：导出时读取当前值
+     */
+    private static final class Gauge implements Metric {
+        private final DoubleSupplier supplier;
+
+        private Gauge(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        private double read() {
+            try {
+                return supplier.getAsDouble();
+            } catch (RuntimeException e) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            appendName(out, name, labels).append(' ').append(formatNumber(read())).append('\n');
+        }
+
+        @Override
+        public void summarize(List<String> out, String displayName) {
+            out.add(displayName + " " + formatNumber(read()));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.bSHongbao.metrics;
+
+import com.bSHongbao.BSHongbao;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 插件指标
+ * Plugin Metrics
+ * <p>
+ * 集中注册插件的所有指标，业务代码通过 record 方法记录；计数与耗时在记录处累加，
+ * 余额托管与队列长度等仪表只在导出或查看时读取。
+ */
+public final class PluginMetrics {
+    public static final String PREFIX = "bshongbao_";
+
+    // 领取与 Vault 调用耗时的分桶上界（秒）
+    private static final double[] LATENCY_BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    // 过期处理延迟的分桶上界（秒）
+    private static final double[] LAG_BUCKETS = {0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+    private static final List<String> REJECT_REASONS = List.of(
+            "RATE_LIMITED", "IN_FLIGHT", "NOT_FOUND", "OWN_PACKET", "EXPIRED", "ALREADY_CLAIMED", "EMPTY");
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final Counter packetsCreated;
+    private final Counter createdAmount;
+    private final Counter claims;
+    private final Counter claimedAmount;
+    private final Map<String, Counter> rejects = new HashMap<>();
+    private final Counter packetsExpired;
+    private final Counter refunds;
+    private final Counter refundedAmount;
+    private final Histogram claimLatency;
+    private final Histogram expiryLag;
+
+    public PluginMetrics(BSHongbao plugin) {
+        packetsCreated = registry.counter(PREFIX + "packets_created_total", "Red packets created.");
+        createdAmount = registry.counter(PREFIX + "created_cents_total", "Money put into red packets, in cents.");
+        claims = registry.counter(PREFIX + "claims_total", "Successful claims.");
+        claimedAmount = registry.counter(PREFIX + "claimed_cents_total", "Money claimed from red packets, in cents.");
+        for (String reason : REJECT_REASONS) {
+            rejects.put(reason, registry.counter(PREFIX + "claim_rejects_total", "Rejected claims by reason.", "reason", reason));
+        }
+        packetsExpired = registry.counter(PREFIX + "packets_expired_total", "Red packets that expired before being emptied.");
+        refunds = registry.counter(PREFIX + "refunds_total", "Refund payouts to packet senders.");
+        refundedAmount = registry.counter(PREFIX + "refunded_cents_total", "Money refunded to packet senders, in cents.");
+        registry.counter(PREFIX + "deposit_failures_total", "Failed deposits by purpose.", "purpose", "claim");
+        registry.counter(PREFIX + "deposit_failures_total", "Failed deposits by purpose.", "purpose", "refund");
+
+        claimLatency = registry.histogram(PREFIX + "claim_latency_seconds",
+                "Time from a claim command to the deposit result.", LATENCY_BUCKETS);
+        registry.histogram(PREFIX + "vault_call_seconds", "Vault economy call latency.", LATENCY_BUCKETS, "operation", "deposit");
+        registry.histogram(PREFIX + "vault_call_seconds", "Vault economy call latency.", LATENCY_BUCKETS, "operation", "withdraw");
+        expiryLag = registry.histogram(PREFIX + "expiry_lag_seconds",
+                "Delay between a packet's expiry time and its refund processing.", LAG_BUCKETS);
+
+        registry.gauge(PREFIX + "active_packets", "Red packets that can still be claimed.",
+                () -> plugin.getRedPacketManager().getActivePacketCount());
+        registry.gauge(PREFIX + "escrow_cents", "Money held by the plugin, in cents.", "state", "active",
+                () -> plugin.getRedPacketManager().getEscrowedAmount());
+        registry.gauge(PREFIX + "escrow_cents", "Money held by the plugin, in cents.", "state", "pending_refund",
+                () -> plugin.getRedPacketManager().getPendingRefundTotal());
+        String queueHelp = "Items waiting in internal queues.";
+        registry.gauge(PREFIX + "queue_depth", queueHelp, "queue", "expiry",
+                () -> plugin.getRedPacketManager().getExpiryQueueSize());
+        registry.gauge(PREFIX + "queue_depth", queueHelp, "queue", "pending_refunds",
+                () -> plugin.getRedPacketManager().getPendingRefundPlayerCount());
+        registry.gauge(PREFIX + "queue_depth", queueHelp, "queue", "economy_tasks",
+                () -> plugin.getEconomyManager().getDispatcher().getQueuedTaskCount());
+        registry.gauge(PREFIX + "queue_depth", queueHelp, "queue", "pending_deposits",
+                () -> plugin.getEconomyManager().getDispatcher().getPendingDepositCount());
+        registry.gauge(PREFIX + "queue_depth", queueHelp, "queue", "claim_digests",
+                () -> plugin.getChatManager().getPendingDigestCount());
+        registry.gauge(PREFIX + "queue_depth", queueHelp, "queue", "audit",
+                () -> plugin.getAuditLog().getPendingCount());
+        registry.gauge(PREFIX + "queue_depth", queueHelp, "queue", "creation_sessions",
+                () -> plugin.getRedPacketGUI().getCreationSessionCount());
+    }
+
+    /**
+     * 记录红包创建
+     *
+     * @param amount 总金额（分）
+     */
+    public void recordCreate(long amount) {
+        packetsCreated.increment();
+        createdAmount.add(amount);
+    }
+
+    /**
+     * 记录一次成功领取
+     *
+     * @param amount 领到的金额（分）
+     */
+    public void recordClaim(long amount) {
+        claims.increment();
+        claimedAmount.add(amount);
+    }
+
+    /**
+     * 记录从领取命令到存款结果的耗时
+     */
+    public void recordClaimLatency(long nanos) {
+        claimLatency.observeNanos(nanos);
+    }
+
+    /**
+     * 记录被拒绝的领取
+     */
+    public void recordRejected(String reason) {
+        Counter counter = rejects.get(reason);
+        if (counter == null) {
+            counter = registry.counter(PREFIX + "claim_rejects_total", "Rejected claims by reason.", "reason", reason);
+        }
+        counter.increment();
+    }
+
+    /**
+     * 记录红包过期
+     *
+     * @param lagMillis 实际处理时间与到期时间之差（毫秒）
+     */
+    public void recordExpiry(long lagMillis) {
+        packetsExpired.increment();
+        expiryLag.observeMillis(lagMillis);
+    }
+
+    /**
+     * 记录一次退款发放
+     *
+     * @param amount 金额（分）
+     */
+    public void recordRefund(long amount) {
+        refunds.increment();
+        refundedAmount.add(amount);
+    }
+
+    /**
+     * 记录存款失败
+     *
+     * @param purpose claim 或 refund
+     */
+    public void recordDepositFailure(String purpose) {
+        registry.counter(PREFIX + "deposit_failures_total", "Failed deposits by purpose.", "purpose", purpose).increment();
+    }
+
+    /**
+     * 获取 Vault 调用耗时直方图
+     *
+     * @param operation deposit 或 withdraw
+     */
+    public Histogram getVaultLatency(String operation) {
+        return registry.histogram(PREFIX + "vault_call_seconds", "Vault economy call latency.", LATENCY_BUCKETS,
+                "operation", operation);
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+}
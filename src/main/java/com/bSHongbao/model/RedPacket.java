@@ -1,119 +1,185 @@
 package com.bSHongbao.model;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import com.bSHongbao.util.PacketIds;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 红包数据模型
  * Red Packet Data Model
+ * <p>
+ * 所有金额均以"分"为单位的 long 存储，参见 {@link com.bSHongbao.util.Money}
  */
 public class RedPacket {
-    private final String id;
+    /** 领取失败时 {@link #claim(String)} 的返回值 */
+    public static final long NOT_CLAIMED = -1L;
+    /** 每份红包的最小金额（分） */
+    public static final long MIN_SHARE_CENTS = 1L;
+    // 领取进行中的占位值，尚未分到金额
+    private static final Long PENDING = NOT_CLAIMED;
+    
+    private final long id;
     private final String senderId;
     private final String senderName;
     private final RedPacketType type;
-    private final BigDecimal totalAmount;
+    private final long totalAmount;
     private final int totalCount;
     private final long createTime;
     private final long expireTime;
-    private final List<BigDecimal> amounts;
-    private final Map<String, BigDecimal> claimedPlayers;
-    private boolean expired;
+    private final ShareSource shares;
+    // 已领取玩家及金额，保证每个玩家只能领取一份；内存随领取人数增长
+    private final Map<String, Long> claimedPlayers;
+    private volatile boolean expired;
     
     public RedPacket(String senderId, String senderName, RedPacketType type, 
-                    BigDecimal totalAmount, int totalCount, long expireTimeMinutes) {
-        this.id = UUID.randomUUID().toString();
+                    long totalAmount, int totalCount, long expireTimeMinutes) {
+        this(senderId, senderName, type, totalAmount, totalCount, expireTimeMinutes, false);
+    }
+    
+    /**
+     * @param lazyShares 为 true 且为拼手气红包时，不预先生成金额，而是在每次领取时从剩余金额中抽取
+     */
+    public RedPacket(String senderId, String senderName, RedPacketType type, 
+                    long totalAmount, int totalCount, long expireTimeMinutes, boolean lazyShares) {
+        this.id = PacketIds.next();
         this.senderId = senderId;
         this.senderName = senderName;
         this.type = type;
-        this.totalAmount = totalAmount.setScale(2, RoundingMode.HALF_UP);
+        this.totalAmount = totalAmount;
         this.totalCount = totalCount;
         this.createTime = System.currentTimeMillis();
         this.expireTime = this.createTime + (expireTimeMinutes * 60 * 1000);
-        this.amounts = new ArrayList<>();
-        this.claimedPlayers = new HashMap<>();
+        this.claimedPlayers = new ConcurrentHashMap<>();
         this.expired = false;
         
-        generateAmounts();
+        if (type == RedPacketType.NORMAL) {
+            this.shares = new IndexedShares(totalAmount, totalCount, null);
+        } else if (lazyShares) {
+            this.shares = new StreamingShares(totalAmount, totalCount);
+        } else {
+            this.shares = new IndexedShares(totalAmount, totalCount, generateLuckyAmounts(totalAmount, totalCount));
+        }
     }
     
     /**
-     * 生成红包金额分配
+     * 从持久化记录恢复红包：已领取部分原样恢复，剩余金额与份数重新组成金额来源
      */
-    private void generateAmounts() {
+    private RedPacket(long id, String senderId, String senderName, RedPacketType type,
+                      long totalAmount, int totalCount, long createTime, long expireTime,
+                      Map<String, Long> claims) {
+        this.id = id;
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.type = type;
+        this.totalAmount = totalAmount;
+        this.totalCount = totalCount;
+        this.createTime = createTime;
+        this.expireTime = expireTime;
+        this.claimedPlayers = new ConcurrentHashMap<>(claims);
+        this.expired = false;
+        
+        long remainingAmount = totalAmount;
+        for (long amount : claims.values()) {
+            remainingAmount -= amount;
+        }
+        int remainingCount = totalCount - claims.size();
+        
         if (type == RedPacketType.NORMAL) {
-            // 普通红包：平均分配
-            BigDecimal singleAmount = totalAmount.divide(BigDecimal.valueOf(totalCount), 2, RoundingMode.HALF_UP);
-            for (int i = 0; i < totalCount; i++) {
-                amounts.add(singleAmount);
-            }
+            this.shares = new IndexedShares(remainingAmount, remainingCount, null);
         } else {
-            // 拼手气红包：随机分配
-            generateLuckyAmounts();
+            this.shares = new StreamingShares(remainingAmount, remainingCount);
         }
     }
     
+    /**
+     * 从持久化记录恢复红包
+     *
+     * @param claims 已领取玩家及金额（分）
+     */
+    public static RedPacket restore(long id, String senderId, String senderName, RedPacketType type,
+                                    long totalAmount, int totalCount, long createTime, long expireTime,
+                                    Map<String, Long> claims) {
+        return new RedPacket(id, senderId, senderName, type, totalAmount, totalCount, createTime, expireTime, claims);
+    }
+    
     /**
      * 生成拼手气红包金额（二倍均值法）
      */
-    private void generateLuckyAmounts() {
-        Random random = new Random();
-        BigDecimal remainingAmount = totalAmount;
+    private static long[] generateLuckyAmounts(long totalAmount, int totalCount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] amounts = new long[totalCount];
+        long remainingAmount = totalAmount;
         int remainingCount = totalCount;
         
         for (int i = 0; i < totalCount - 1; i++) {
-            // 计算当前红包的最大金额（剩余金额的2倍平均值）
-            BigDecimal maxAmount = remainingAmount.divide(BigDecimal.valueOf(remainingCount), 2, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(2));
-            
-            // 最小金额为0.01
-            BigDecimal minAmount = new BigDecimal("0.01");
-            
-            // 确保最大金额不会导致后续红包无法分配
-            BigDecimal safeMaxAmount = remainingAmount.subtract(BigDecimal.valueOf(remainingCount - 1).multiply(minAmount));
-            if (maxAmount.compareTo(safeMaxAmount) > 0) {
-                maxAmount = safeMaxAmount;
-            }
-            
-            // 生成随机金额
-            BigDecimal randomAmount;
-            if (maxAmount.compareTo(minAmount) <= 0) {
-                randomAmount = minAmount;
-            } else {
-                double randomValue = random.nextDouble() * (maxAmount.doubleValue() - minAmount.doubleValue()) + minAmount.doubleValue();
-                randomAmount = BigDecimal.valueOf(randomValue).setScale(2, RoundingMode.HALF_UP);
-            }
-            
-            amounts.add(randomAmount);
-            remainingAmount = remainingAmount.subtract(randomAmount);
+            long randomAmount = drawLuckyShare(remainingAmount, remainingCount, random);
+            amounts[i] = randomAmount;
+            remainingAmount -= randomAmount;
             remainingCount--;
         }
         
         // 最后一个红包获得剩余金额
-        amounts.add(remainingAmount.setScale(2, RoundingMode.HALF_UP));
+        amounts[totalCount - 1] = remainingAmount;
         
-        // 打乱顺序
-        Collections.shuffle(amounts);
+        // 打乱顺序（Fisher-Yates）
+        for (int i = totalCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = amounts[i];
+            amounts[i] = amounts[j];
+            amounts[j] = tmp;
+        }
+        return amounts;
     }
     
     /**
-     * 领取红包
+     * 按二倍均值法从剩余金额中抽取一份，保证剩余每份至少 {@link #MIN_SHARE_CENTS}
      */
-    public synchronized BigDecimal claim(String playerId) {
-        if (expired || isExpired()) {
-            return null;
+    private static long drawLuckyShare(long remainingAmount, int remainingCount, ThreadLocalRandom random) {
+        if (remainingCount <= 1) {
+            return remainingAmount;
         }
         
-        if (claimedPlayers.containsKey(playerId)) {
-            return null; // 已经领取过
+        // 计算当前红包的最大金额（剩余金额的2倍平均值）
+        long maxAmount = remainingAmount / remainingCount * 2;
+        
+        // 确保最大金额不会导致后续红包无法分配
+        long safeMaxAmount = remainingAmount - (remainingCount - 1) * MIN_SHARE_CENTS;
+        if (maxAmount > safeMaxAmount) {
+            maxAmount = safeMaxAmount;
         }
         
-        if (claimedPlayers.size() >= amounts.size()) {
-            return null; // 已经被领完
+        // 生成随机金额 [min, max]
+        if (maxAmount <= MIN_SHARE_CENTS) {
+            return MIN_SHARE_CENTS;
+        }
+        return random.nextLong(MIN_SHARE_CENTS, maxAmount + 1);
+    }
+    
+    /**
+     * 领取红包（无锁）
+     * 先占用玩家名额，再从金额来源取一份；已领完则释放名额
+     *
+     * @return 领到的金额（分），失败时返回 {@link #NOT_CLAIMED}
+     */
+    public long claim(String playerId) {
+        if (isExpired()) {
+            return NOT_CLAIMED;
+        }
+        
+        if (claimedPlayers.putIfAbsent(playerId, PENDING) != null) {
+            return NOT_CLAIMED; // 已经领取过（或正在领取）
+        }
+        
+        long amount = shares.take();
+        if (amount == NOT_CLAIMED) {
+            claimedPlayers.remove(playerId, PENDING);
+            return NOT_CLAIMED; // 已经被领完
         }
         
-        BigDecimal amount = amounts.get(claimedPlayers.size());
         claimedPlayers.put(playerId, amount);
         return amount;
     }
@@ -126,45 +192,241 @@ public class RedPacket {
     }
     
     /**
-     * 设置为过期
+     * 封存红包：原子地关闭金额来源，之后的领取都会失败
+     * 与并发的领取严格区分先后：在封存之前取到的份额归领取者，返回值只包含封存时仍未领取的金额
+     *
+     * @return 未领取的金额（分），重复调用时返回 0
      */
-    public void setExpired() {
+    public long seal() {
         this.expired = true;
+        return shares.seal();
     }
     
     /**
-     * 获取剩余金额
+     * 获取剩余金额（分），O(1)，可在任意线程调用
      */
-    public BigDecimal getRemainingAmount() {
-        BigDecimal claimedAmount = claimedPlayers.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        return totalAmount.subtract(claimedAmount);
+    public long getRemainingAmount() {
+        return shares.remainingAmount();
     }
     
     /**
-     * 获取剩余份数
+     * 获取实际已领取份数（不含过期封存的部分），O(1)，可在任意线程调用
+     */
+    public int getClaimedCount() {
+        return totalCount - shares.unclaimedCount();
+    }
+    
+    /**
+     * 获取仍可领取的份数，封存后为 0，O(1)，可在任意线程调用
      */
     public int getRemainingCount() {
-        return totalCount - claimedPlayers.size();
+        return shares.isSealed() ? 0 : shares.unclaimedCount();
     }
     
     /**
-     * 检查是否被领完
+     * 检查是否被领完（过期封存时未领完的红包不算）
      */
     public boolean isFullyClaimed() {
-        return claimedPlayers.size() >= totalCount;
+        return shares.unclaimedCount() == 0;
+    }
+    
+    /**
+     * 检查玩家是否已领取
+     */
+    public boolean hasClaimed(String playerId) {
+        return claimedPlayers.containsKey(playerId);
     }
     
     // Getters
-    public String getId() { return id; }
+    public long getId() { return id; }
+    
+    /**
+     * 获取 base-62 短 ID（用于点击命令与日志）
+     */
+    public String getShortId() { return PacketIds.encode(id); }
     public String getSenderId() { return senderId; }
     public String getSenderName() { return senderName; }
     public RedPacketType getType() { return type; }
-    public BigDecimal getTotalAmount() { return totalAmount; }
+    public long getTotalAmount() { return totalAmount; }
     public int getTotalCount() { return totalCount; }
     public long getCreateTime() { return createTime; }
     public long getExpireTime() { return expireTime; }
-    public Map<String, BigDecimal> getClaimedPlayers() { return new HashMap<>(claimedPlayers); }
+    
+    /**
+     * 获取已领取玩家及金额（分）的快照
+     */
+    public Map<String, Long> getClaimedPlayers() {
+        Map<String, Long> snapshot = new HashMap<>();
+        for (Map.Entry<String, Long> entry : claimedPlayers.entrySet()) {
+            if (entry.getValue() != NOT_CLAIMED) {
+                snapshot.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return snapshot;
+    }
+    
+    /**
+     * 红包金额来源
+     */
+    private interface ShareSource {
+        /**
+         * 取出一份金额（分），已领完时返回 {@link #NOT_CLAIMED}
+         */
+        long take();
+        
+        /**
+         * 原子地关闭金额来源，之后 {@link #take()} 总是失败
+         *
+         * @return 关闭时尚未取出的金额（分），已关闭时返回 0
+         */
+        long seal();
+        
+        boolean isSealed();
+        
+        /**
+         * 仍可领取的金额（分），封存后为 0
+         */
+        long remainingAmount();
+        
+        /**
+         * 尚未被取出的份数，不受封存影响
+         */
+        int unclaimedCount();
+    }
+    
+    /**
+     * 按下标发放的金额来源：通过 CAS 推进领取游标
+     * 游标是唯一的可变状态，剩余金额与份数都由它推出，读者看到的两者始终一致：
+     * 拼手气红包保存金额的前缀和，平均分配的红包按公式计算（除不尽的零头逐份补 1 分）
+     */
+    private static final class IndexedShares implements ShareSource {
+        // 游标的封存标记位，其余位为已取出的份数
+        private static final int SEALED = Integer.MIN_VALUE;
+        
+        private final long totalAmount;
+        private final int totalCount;
+        // 拼手气红包：prefixSums[i] 为前 i + 1 份金额之和；平均分配时为 null
+        private final long[] prefixSums;
+        private final long evenAmount;
+        private final long evenRemainder;
+        // 领取游标：指向下一份待领取的金额下标，只增不减；封存时置上 SEALED 位，保留已领取份数
+        private final AtomicInteger cursor = new AtomicInteger();
+        
+        /**
+         * @param amounts 每份金额，就地转换为前缀和；为 null 时平均分配
+         */
+        IndexedShares(long totalAmount, int totalCount, long[] amounts) {
+            this.totalAmount = totalAmount;
+            this.totalCount = totalCount;
+            if (amounts != null) {
+                for (int i = 1; i < amounts.length; i++) {
+                    amounts[i] += amounts[i - 1];
+                }
+            }
+            this.prefixSums = amounts;
+            this.evenAmount = totalCount > 0 ? totalAmount / totalCount : 0;
+            this.evenRemainder = totalCount > 0 ? totalAmount % totalCount : 0;
+        }
+        
+        @Override
+        public long take() {
+            while (true) {
+                int current = cursor.get();
+                if ((current & SEALED) != 0 || current >= totalCount) {
+                    return NOT_CLAIMED;
+                }
+                if (cursor.compareAndSet(current, current + 1)) {
+                    return claimedBefore(current + 1) - claimedBefore(current);
+                }
+            }
+        }
+        
+        @Override
+        public long seal() {
+            int current = cursor.getAndUpdate(value -> value | SEALED);
+            if ((current & SEALED) != 0) {
+                return 0;
+            }
+            return totalAmount - claimedBefore(current);
+        }
+        
+        /**
+         * 前 taken 份金额之和（分）
+         */
+        private long claimedBefore(int taken) {
+            if (prefixSums != null) {
+                return taken == 0 ? 0 : prefixSums[taken - 1];
+            }
+            return taken * evenAmount + Math.min(taken, evenRemainder);
+        }
+        
+        @Override
+        public boolean isSealed() {
+            return (cursor.get() & SEALED) != 0;
+        }
+        
+        @Override
+        public long remainingAmount() {
+            int current = cursor.get();
+            return (current & SEALED) != 0 ? 0 : totalAmount - claimedBefore(current);
+        }
+        
+        @Override
+        public int unclaimedCount() {
+            return totalCount - (cursor.get() & ~SEALED);
+        }
+    }
+    
+    /**
+     * 流式金额来源：领取时才从剩余金额/份数中按二倍均值法抽取
+     * 剩余金额、份数与封存状态放在同一个不可变快照里 CAS 更新，三者始终一致
+     */
+    private static final class StreamingShares implements ShareSource {
+        private final AtomicReference<Remaining> remaining;
+        
+        StreamingShares(long totalAmount, int totalCount) {
+            this.remaining = new AtomicReference<>(new Remaining(totalAmount, totalCount, false));
+        }
+        
+        @Override
+        public long take() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (true) {
+                Remaining current = remaining.get();
+                if (current.sealed() || current.count() <= 0) {
+                    return NOT_CLAIMED;
+                }
+                long amount = drawLuckyShare(current.amount(), current.count(), random);
+                if (remaining.compareAndSet(current, new Remaining(current.amount() - amount, current.count() - 1, false))) {
+                    return amount;
+                }
+            }
+        }
+        
+        @Override
+        public long seal() {
+            // 金额清零、保留未领份数，已封存时返回 0
+            Remaining current = remaining.getAndUpdate(value -> new Remaining(0, value.count(), true));
+            return current.amount();
+        }
+        
+        @Override
+        public boolean isSealed() {
+            return remaining.get().sealed();
+        }
+        
+        @Override
+        public long remainingAmount() {
+            return remaining.get().amount();
+        }
+        
+        @Override
+        public int unclaimedCount() {
+            return remaining.get().count();
+        }
+        
+        private record Remaining(long amount, int count, boolean sealed) {}
+    }
     
     /**
      * 红包类型枚举
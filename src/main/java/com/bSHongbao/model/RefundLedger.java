@@ -0,0 +1,115 @@
+package com.bSHongbao.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 待退款账本
+ * Pending Refund Ledger
+ * <p>
+ * 按玩家 UUID 累计待发放金额（分），分为过期退款与领取补发两类。每个玩家对应一个不可变的累计值，所有修改都通过
+ * {@link ConcurrentHashMap} 的原子操作完成；{@link #drain(UUID)} 原子取走全部待退款，
+ * 同一笔退款只会被一个线程取到，存款失败时用 {@link #restore(UUID, Entry)} 放回。
+ */
+public class RefundLedger {
+    /**
+     * 待发放金额的类型
+     */
+    public enum Kind {
+        /** 过期或创建失败，退还给发送者 */
+        REFUND,
+        /** 领取时存款失败，补发给领取者 */
+        CLAIM_RETRY
+    }
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 添加一笔待发放金额
+     *
+     * @param sourceId 来源（通常为红包 ID）
+     * @param amount   金额（分）
+     */
+    public void add(UUID playerId, Kind kind, String sourceId, long amount) {
+        if (amount <= 0) {
+            return;
+        }
+        entries.merge(playerId, Entry.of(kind, sourceId, amount), Entry::plus);
+    }
+
+    /**
+     * 原子取走玩家的全部待退款
+     *
+     * @return 待退款，没有时返回 null
+     */
+    public Entry drain(UUID playerId) {
+        return entries.remove(playerId);
+    }
+
+    /**
+     * 将取走但未能发放的退款放回（与期间新增的退款合并）
+     */
+    public void restore(UUID playerId, Entry entry) {
+        entries.merge(playerId, entry, Entry::plus);
+    }
+
+    /**
+     * 获取玩家待退款，没有时返回 null
+     */
+    public Entry get(UUID playerId) {
+        return entries.get(playerId);
+    }
+
+    /**
+     * 获取有待退款的玩家数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取所有玩家待退款总额（分）
+     */
+    public long totalAmount() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.total();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * 单个玩家的待发放累计值
+     *
+     * @param refundAmount     过期退款金额（分）
+     * @param claimRetryAmount 领取补发金额（分）
+     * @param count            笔数
+     * @param sourceIds        来源 ID
+     */
+    public record Entry(long refundAmount, long claimRetryAmount, int count, List<String> sourceIds) {
+        static Entry of(Kind kind, String sourceId, long amount) {
+            return kind == Kind.REFUND
+                    ? new Entry(amount, 0, 1, List.of(sourceId))
+                    : new Entry(0, amount, 1, List.of(sourceId));
+        }
+
+        /**
+         * 总金额（分）
+         */
+        public long total() {
+            return refundAmount + claimRetryAmount;
+        }
+
+        Entry plus(Entry other) {
+            List<String> sources = new ArrayList<>(sourceIds.size() + other.sourceIds.size());
+            sources.addAll(sourceIds);
+            sources.addAll(other.sourceIds);
+            return new Entry(refundAmount + other.refundAmount, claimRetryAmount + other.claimRetryAmount,
+                    count + other.count, Collections.unmodifiableList(sources));
+        }
+    }
+}
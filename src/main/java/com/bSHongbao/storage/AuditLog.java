@@ -0,0 +1,297 @@
+package com.bSHongbao.storage;
+
+import com.bSHongbao.util.Money;
+import com.bSHongbao.util.MpscRingBuffer;
+import com.bSHongbao.util.PacketIds;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 审计日志
+ * Audit Log
+ * <p>
+ * 记录红包的创建、领取、被拒绝的领取、退款与存款失败，用于处理玩家的领取纠纷。
+ * 调用方只向无锁环形缓冲区发布一条记录；后台线程批量格式化并写入 audit.log，
+ * 文件超过上限后压缩为 .log.gz 归档。最近的记录同时保存在内存中，供命令查询。
+ * <p>
+ * 行格式：时间\t类型\t红包\t玩家名\t玩家ID\t金额\t详情
+ */
+public final class AuditLog implements AutoCloseable {
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final long WRITE_INTERVAL_MILLIS = 200L;
+    private static final int RECENT_CAPACITY = 2000;
+    private static final String ACTIVE_FILE = "audit.log";
+    private static final String ARCHIVE_PREFIX = "audit-";
+    private static final String ARCHIVE_SUFFIX = ".log.gz";
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter ARCHIVE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+
+    /**
+     * 记录类型
+     */
+    public enum Type {
+        CREATE,
+        CLAIM,
+        CLAIM_REJECTED,
+        REFUND,
+        DEPOSIT_FAILED
+    }
+
+    /**
+     * 审计记录
+     *
+     * @param packetId 红包 ID，与具体红包无关时为 0
+     * @param amount   金额（分）
+     * @param detail   补充说明（拒绝原因、红包类型等），可为空
+     */
+    public record Entry(long timeMillis, Type type, long packetId, String playerName, String playerId,
+                        long amount, String detail) {
+        /**
+         * 格式化为一行文本（不含换行）
+         */
+        public String format() {
+            return TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis)) + '\t' + type + '\t'
+                    + (packetId == 0 ? "-" : PacketIds.encode(packetId)) + '\t'
+                    + playerName + '\t' + playerId + '\t' + Money.format(amount) + '\t'
+                    + (detail == null ? "" : detail);
+        }
+    }
+
+    private final Path directory;
+    private final Logger logger;
+    private final long maxFileBytes;
+    private final int maxArchives;
+    private final MpscRingBuffer<Entry> buffer;
+    private final ScheduledExecutorService writer;
+    // 只由写入线程追加，查询时加锁复制
+    private final ArrayDeque<Entry> recent = new ArrayDeque<>(RECENT_CAPACITY);
+    private BufferedWriter out;
+    private volatile long written;
+    private volatile boolean closed;
+
+    private AuditLog(Path directory, Logger logger, long maxFileBytes, int maxArchives) {
+        this.directory = directory;
+        this.logger = logger;
+        this.maxFileBytes = maxFileBytes;
+        this.maxArchives = maxArchives;
+        this.buffer = new MpscRingBuffer<>(BUFFER_CAPACITY);
+        this.writer = directory == null ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "BSHongbao-Audit-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 打开审计日志
+     *
+     * @param directory    日志目录
+     * @param maxFileBytes 当前文件的大小上限，超过后压缩归档
+     * @param maxArchives  保留的归档数量
+     */
+    public static AuditLog open(Path directory, Logger logger, long maxFileBytes, int maxArchives) throws IOException {
+        Files.createDirectories(directory);
+        AuditLog log = new AuditLog(directory, logger, maxFileBytes, maxArchives);
+        try {
+            log.openActiveFile();
+        } catch (IOException e) {
+            log.writer.shutdownNow();
+            throw e;
+        }
+        log.writer.scheduleWithFixedDelay(log::writeBatch, WRITE_INTERVAL_MILLIS, WRITE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return log;
+    }
+
+    /**
+     * 不写文件的审计日志（配置关闭时使用），所有记录被忽略
+     */
+    public static AuditLog disabled(Logger logger) {
+        return new AuditLog(null, logger, 0L, 0);
+    }
+
+    /**
+     * 发布一条记录；只做一次缓冲区发布，缓冲区满时丢弃并计数
+     */
+    public void record(Type type, long packetId, String playerName, String playerId, long amount, String detail) {
+        if (writer == null || closed) {
+            return;
+        }
+        buffer.offer(new Entry(System.currentTimeMillis(), type, packetId, playerName, playerId, amount, detail));
+    }
+
+    /**
+     * 按条件查询最近的记录，最新的在前
+     *
+     * @param filter 过滤条件
+     * @param limit  最多返回的条数
+     */
+    public List<Entry> search(Predicate<Entry> filter, int limit) {
+        List<Entry> matches = new ArrayList<>();
+        synchronized (recent) {
+            Iterator<Entry> iterator = recent.descendingIterator();
+            while (iterator.hasNext() && matches.size() < limit) {
+                Entry entry = iterator.next();
+                if (filter.test(entry)) {
+                    matches.add(entry);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 是否在写入文件
+     */
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * 已写入文件的记录数
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * 缓冲区中等待写入的记录数
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * 因缓冲区满而丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return buffer.getDroppedCount();
+    }
+
+    /**
+     * 取出缓冲区中的记录，批量写入并刷新一次（写入线程）
+     */
+    private void writeBatch() {
+        try {
+            int drained = buffer.drain(this::writeEntry);
+            if (drained == 0) {
+                return;
+            }
+            out.flush();
+            if (Files.size(directory.resolve(ACTIVE_FILE)) >= maxFileBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write audit log in " + directory, e);
+        }
+    }
+
+    private void writeEntry(Entry entry) {
+        synchronized (recent) {
+            if (recent.size() == RECENT_CAPACITY) {
+                recent.pollFirst();
+            }
+            recent.addLast(entry);
+        }
+
+        String line = entry.format();
+        try {
+            out.write(line);
+            out.newLine();
+            written++;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write audit record: " + line, e);
+        }
+    }
+
+    private void openActiveFile() throws IOException {
+        out = Files.newBufferedWriter(directory.resolve(ACTIVE_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 压缩当前文件为归档并重新开始，超出数量的旧归档被删除
+     */
+    private void rotate() throws IOException {
+        out.close();
+        Path active = directory.resolve(ACTIVE_FILE);
+        Path archive = directory.resolve(ARCHIVE_PREFIX + ARCHIVE_FORMAT.format(Instant.now()) + ARCHIVE_SUFFIX);
+        for (int i = 1; Files.exists(archive); i++) {
+            archive = directory.resolve(ARCHIVE_PREFIX + ARCHIVE_FORMAT.format(Instant.now()) + "-" + i + ARCHIVE_SUFFIX);
+        }
+
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        try (InputStream in = Files.newInputStream(active);
+             OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            in.transferTo(gzip);
+        }
+        Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(active);
+        openActiveFile();
+        pruneArchives();
+    }
+
+    private void pruneArchives() throws IOException {
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, ARCHIVE_PREFIX + "*" + ARCHIVE_SUFFIX)) {
+            for (Path archive : stream) {
+                archives.add(archive);
+            }
+        }
+        if (archives.size() <= maxArchives) {
+            return;
+        }
+        // 文件名中的时间戳保证按名称排序即按时间排序
+        archives.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        for (int i = 0; i < archives.size() - maxArchives; i++) {
+            Files.deleteIfExists(archives.get(i));
+        }
+    }
+
+    /**
+     * 停止写入线程，写完缓冲区中剩余的记录后关闭文件
+     */
+    @Override
+    public void close() {
+        if (writer == null || closed) {
+            return;
+        }
+        closed = true;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Audit writer did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            buffer.drain(this::writeEntry);
+            out.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close audit log in " + directory, e);
+        }
+    }
+}
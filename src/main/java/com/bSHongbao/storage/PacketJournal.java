@@ -0,0 +1,591 @@
+package com.bSHongbao.storage;
+
+import com.bSHongbao.model.RedPacket;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * 红包预写日志（内存映射、只追加）
+ * Red Packet Write-Ahead Journal
+ * <p>
+ * 记录红包的创建、领取、过期、退款与领取补发，崩溃后启动时重放以恢复托管资金和待发放金额。
+ * 追加只写入映射内存（进程被 kill 也不会丢失），刷盘由后台线程批量完成，领取路径不等待 fsync。
+ * 领取记录写入时存款尚未完成，存款结束后再记录到账或转为待补发；重放时没有结果的领取一律转为待补发。
+ * <p>
+ * 并发追加不加锁：每条记录先用 CAS 预留文件偏移，再写入映射窗口中属于自己的区间；
+ * 只有预留的区间落在尚未映射的窗口时，才在锁内映射新窗口。
+ * <p>
+ * 记录格式：[int 长度][byte 类型][负载][int CRC32]，长度为 0 表示日志结束。
+ */
+public final class PacketJournal implements AutoCloseable {
+    // 每次映射的窗口大小，写满后映射下一段
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    // 单条记录的最大长度（玩家名、UUID 等都很短）
+    private static final int MAX_RECORD_SIZE = 1024;
+
+    private static final byte TYPE_CREATE = 1;
+    private static final byte TYPE_CLAIM = 2;
+    private static final byte TYPE_EXPIRE = 3;
+    private static final byte TYPE_PENDING_REFUND = 4;
+    private static final byte TYPE_REFUND_PAID = 5;
+    private static final byte TYPE_PENDING_CLAIM_RETRY = 6;
+    private static final byte TYPE_CLAIM_PAID = 7;
+    private static final byte TYPE_CLAIM_DEFERRED = 8;
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_RECORD_SIZE));
+    private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+    private final Path file;
+    private final Logger logger;
+    private final FileChannel channel;
+    private final ScheduledExecutorService flusher;
+    // 第一个映射窗口在文件中的起点，之后的窗口首尾相接
+    private final long firstChunkBase;
+    // 下一条记录的文件偏移，追加时原子预留
+    private final AtomicLong nextOffset;
+    // 尚未写满或尚未刷盘的映射窗口（窗口起点 -> 窗口）
+    private final Map<Long, Chunk> chunks = new ConcurrentHashMap<>();
+    // 只在映射新窗口时使用
+    private final Object mapLock = new Object();
+    // 最新映射的窗口，绝大多数追加直接写入它
+    private volatile Chunk current;
+    private volatile boolean dirty;
+    private volatile boolean closed;
+
+    private PacketJournal(Path file, Logger logger, FileChannel channel, long appendOffset, long flushIntervalMillis) throws IOException {
+        this.file = file;
+        this.logger = logger;
+        this.channel = channel;
+        this.firstChunkBase = appendOffset;
+        this.nextOffset = new AtomicLong(appendOffset);
+        this.current = new Chunk(appendOffset, channel.map(FileChannel.MapMode.READ_WRITE, appendOffset, CHUNK_SIZE));
+        this.chunks.put(appendOffset, current);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "BSHongbao-Journal-Flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 打开日志：先把当前存活的状态写入临时文件并原子替换旧日志（启动时的压缩），再映射末尾继续追加
+     *
+     * @param livePackets         恢复后仍然有效的红包
+     * @param pendingRefunds      恢复后的待退款（玩家 ID -> 分）
+     * @param pendingClaimRetries 恢复后的待补发领取金额（玩家 ID -> 分）
+     */
+    public static PacketJournal open(Path file, Logger logger, long flushIntervalMillis,
+                                     Collection<RedPacket> livePackets, Map<String, Long> pendingRefunds,
+                                     Map<String, Long> pendingClaimRetries) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+
+        long length;
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (RedPacket packet : livePackets) {
+                writeFully(out, encodeCreate(packet));
+                // 未到账的领取在重放时已转为待补发，压缩后的领取记录都视为已结算
+                for (Map.Entry<String, Long> claim : packet.getClaimedPlayers().entrySet()) {
+                    writeFully(out, encodeClaim(packet.getId(), claim.getKey(), claim.getValue(), true));
+                }
+            }
+            for (Map.Entry<String, Long> refund : pendingRefunds.entrySet()) {
+                writeFully(out, encodePlayerAmount(TYPE_PENDING_REFUND, refund.getKey(), refund.getValue()));
+            }
+            for (Map.Entry<String, Long> retry : pendingClaimRetries.entrySet()) {
+                writeFully(out, encodePlayerAmount(TYPE_PENDING_CLAIM_RETRY, retry.getKey(), retry.getValue()));
+            }
+            out.force(true);
+            length = out.position();
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new PacketJournal(file, logger, channel, length, flushIntervalMillis);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) {
+            out.write(record);
+        }
+    }
+
+    /**
+     * 记录红包创建
+     */
+    public void appendCreate(RedPacket packet) {
+        append(encodeCreate(packet));
+    }
+
+    /**
+     * 记录一批红包的创建，整批作为一次追加写入，记录在日志中连续出现
+     */
+    public void appendCreates(List<RedPacket> packets) {
+        if (packets.size() == 1) {
+            append(encodeCreate(packets.get(0)));
+            return;
+        }
+        // 编码缓冲区按线程复用，先拷出每条记录再拼接
+        List<byte[]> records = new ArrayList<>(packets.size());
+        int length = 0;
+        for (RedPacket packet : packets) {
+            ByteBuffer record = encodeCreate(packet);
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            records.add(bytes);
+            length += bytes.length;
+        }
+        ByteBuffer batch = ByteBuffer.allocate(length);
+        for (byte[] record : records) {
+            batch.put(record);
+        }
+        append(batch.flip());
+    }
+
+    /**
+     * 记录一次成功领取（存款尚未完成）
+     */
+    public void appendClaim(long packetId, String playerId, long amount) {
+        append(encodeClaim(packetId, playerId, amount, false));
+    }
+
+    /**
+     * 记录领取金额已存入领取者账户
+     */
+    public void appendClaimPaid(long packetId, String playerId) {
+        append(encodeClaimResult(TYPE_CLAIM_PAID, packetId, playerId));
+    }
+
+    /**
+     * 记录领取时存款失败，金额转为领取者的待补发金额
+     */
+    public void appendClaimDeferred(long packetId, String playerId) {
+        append(encodeClaimResult(TYPE_CLAIM_DEFERRED, packetId, playerId));
+    }
+
+    /**
+     * 记录红包过期（及应退还给发送者的金额）
+     */
+    public void appendExpire(long packetId, String senderId, long refundAmount) {
+        ByteBuffer buffer = begin(TYPE_EXPIRE);
+        buffer.putLong(packetId);
+        putString(buffer, senderId);
+        buffer.putLong(refundAmount);
+        append(finish(buffer));
+    }
+
+    /**
+     * 记录新增的待退款
+     */
+    public void appendPendingRefund(String playerId, long amount) {
+        append(encodePlayerAmount(TYPE_PENDING_REFUND, playerId, amount));
+    }
+
+    /**
+     * 记录已到账的待发放金额（一次存款可同时包含两类）
+     *
+     * @param refundAmount     其中的退款金额（分）
+     * @param claimRetryAmount 其中的领取补发金额（分）
+     */
+    public void appendRefundPaid(String playerId, long refundAmount, long claimRetryAmount) {
+        ByteBuffer buffer = begin(TYPE_REFUND_PAID);
+        putString(buffer, playerId);
+        buffer.putLong(refundAmount);
+        buffer.putLong(claimRetryAmount);
+        append(finish(buffer));
+    }
+
+    private static ByteBuffer encodeCreate(RedPacket packet) {
+        ByteBuffer buffer = begin(TYPE_CREATE);
+        buffer.putLong(packet.getId());
+        putString(buffer, packet.getSenderId());
+        putString(buffer, packet.getSenderName());
+        buffer.put((byte) packet.getType().ordinal());
+        buffer.putLong(packet.getTotalAmount());
+        buffer.putInt(packet.getTotalCount());
+        buffer.putLong(packet.getCreateTime());
+        buffer.putLong(packet.getExpireTime());
+        return finish(buffer);
+    }
+
+    /**
+     * @param settled 存款是否已有结果（压缩时写入的领取为 true）
+     */
+    private static ByteBuffer encodeClaim(long packetId, String playerId, long amount, boolean settled) {
+        ByteBuffer buffer = begin(TYPE_CLAIM);
+        buffer.putLong(packetId);
+        putString(buffer, playerId);
+        buffer.putLong(amount);
+        buffer.put((byte) (settled ? 1 : 0));
+        return finish(buffer);
+    }
+
+    private static ByteBuffer encodeClaimResult(byte type, long packetId, String playerId) {
+        ByteBuffer buffer = begin(type);
+        buffer.putLong(packetId);
+        putString(buffer, playerId);
+        return finish(buffer);
+    }
+
+    private static ByteBuffer encodePlayerAmount(byte type, String playerId, long amount) {
+        ByteBuffer buffer = begin(type);
+        putString(buffer, playerId);
+        buffer.putLong(amount);
+        return finish(buffer);
+    }
+
+    private static ByteBuffer begin(byte type) {
+        ByteBuffer buffer = SCRATCH.get();
+        buffer.clear();
+        buffer.putInt(0); // 长度占位
+        buffer.put(type);
+        return buffer;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * 补全长度与校验和，返回可读的记录
+     */
+    private static ByteBuffer finish(ByteBuffer buffer) {
+        int bodyLength = buffer.position() - Integer.BYTES;
+        CRC32 crc = CRC.get();
+        crc.reset();
+        crc.update(buffer.array(), Integer.BYTES, bodyLength);
+        buffer.putInt((int) crc.getValue());
+        buffer.putInt(0, bodyLength);
+        return buffer.flip();
+    }
+
+    /**
+     * 写入映射内存：先原子预留区间，再写入覆盖该区间的窗口，记录可以跨越窗口
+     */
+    private void append(ByteBuffer record) {
+        if (closed) {
+            return;
+        }
+        int length = record.remaining();
+        long offset = nextOffset.getAndAdd(length);
+        Chunk chunk = current;
+        if (offset >= chunk.base && offset + length <= chunk.base + CHUNK_SIZE) {
+            chunk.write(offset, record, length);
+        } else {
+            // 跨窗口或落在尚未映射的窗口：逐段写入
+            while (record.hasRemaining()) {
+                chunk = chunkAt(offset);
+                int piece = (int) Math.min(record.remaining(), chunk.base + CHUNK_SIZE - offset);
+                chunk.write(offset, record, piece);
+                offset += piece;
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * 获取覆盖指定偏移的窗口，尚未映射时在锁内映射
+     */
+    private Chunk chunkAt(long offset) {
+        long base = firstChunkBase + (offset - firstChunkBase) / CHUNK_SIZE * CHUNK_SIZE;
+        Chunk chunk = chunks.get(base);
+        if (chunk != null) {
+            return chunk;
+        }
+        synchronized (mapLock) {
+            chunk = chunks.get(base);
+            if (chunk == null) {
+                try {
+                    chunk = new Chunk(base, channel.map(FileChannel.MapMode.READ_WRITE, base, CHUNK_SIZE));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to extend journal " + file, e);
+                }
+                chunks.put(base, chunk);
+                if (base > current.base) {
+                    current = chunk;
+                }
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * 批量刷盘（组提交）；已写满且刷过盘的旧窗口不再保留
+     */
+    public void flush() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        for (Chunk chunk : chunks.values()) {
+            // 先判断是否写满再刷盘，刷盘之后不会再有写入
+            boolean full = chunk.isFull();
+            chunk.buffer.force();
+            if (full && chunk != current) {
+                chunks.remove(chunk.base);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        try {
+            dirty = true;
+            flush();
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close journal " + file, e);
+        }
+    }
+
+    /**
+     * 映射窗口；每个追加者只写自己预留的区间，写完后累加已写字节数
+     */
+    private static final class Chunk {
+        private final long base;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger written = new AtomicInteger();
+
+        private Chunk(long base, MappedByteBuffer buffer) {
+            this.base = base;
+            this.buffer = buffer;
+        }
+
+        /**
+         * 把 record 中接下来的 length 字节写到文件偏移 offset 处（绝对位置写入，不修改窗口的 position）
+         */
+        private void write(long offset, ByteBuffer record, int length) {
+            buffer.put((int) (offset - base), record, record.position(), length);
+            record.position(record.position() + length);
+            written.addAndGet(length);
+        }
+
+        private boolean isFull() {
+            return written.get() == CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * 重放日志，返回崩溃前的存活状态；文件不存在时返回空状态
+     * 遇到被截断或校验失败的尾部记录时停止，之前的记录全部生效
+     */
+    public static Snapshot replay(Path file, Logger logger) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        if (!Files.exists(file)) {
+            return snapshot;
+        }
+
+        // 读入堆内存而不是映射，避免 Windows 上映射中的文件无法被替换
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 crc = new CRC32();
+        int records = 0;
+
+        while (data.remaining() >= Integer.BYTES) {
+            int start = data.position();
+            int length = data.getInt();
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > MAX_RECORD_SIZE || data.remaining() < length + Integer.BYTES) {
+                logger.warning("Journal " + file + " is truncated at offset " + start + ", ignoring the rest");
+                break;
+            }
+
+            ByteBuffer body = data.slice(data.position(), length);
+            crc.reset();
+            crc.update(body.duplicate());
+            data.position(data.position() + length);
+            if ((int) crc.getValue() != data.getInt()) {
+                logger.warning("Journal " + file + " has a corrupt record at offset " + start + ", ignoring the rest");
+                break;
+            }
+
+            try {
+                snapshot.apply(body);
+                records++;
+            } catch (CorruptRecordException | BufferUnderflowException | IndexOutOfBoundsException e) {
+                logger.warning("Journal " + file + " has an unreadable record at offset " + start + ", ignoring the rest");
+                break;
+            }
+        }
+
+        int unsettled = snapshot.deferUnsettledClaims();
+        logger.info("Replayed " + records + " journal record(s) from " + file.getFileName());
+        if (unsettled > 0) {
+            logger.warning(unsettled + " claim(s) in " + file.getFileName()
+                    + " have no recorded deposit result, queued as claim retries");
+        }
+        return snapshot;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 记录内容无法识别
+     */
+    private static final class CorruptRecordException extends RuntimeException {
+        CorruptRecordException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 重放得到的状态
+     */
+    public static final class Snapshot {
+        private final Map<Long, PacketImage> packets = new LinkedHashMap<>();
+        private final Map<String, Long> pendingRefunds = new HashMap<>();
+        private final Map<String, Long> pendingClaimRetries = new HashMap<>();
+        // 已记录但存款尚无结果的领取（含已过期移除的红包）
+        private final Map<ClaimKey, Long> unsettledClaims = new LinkedHashMap<>();
+
+        private void apply(ByteBuffer body) {
+            byte type = body.get();
+            switch (type) {
+                case TYPE_CREATE -> {
+                    long id = body.getLong();
+                    String senderId = getString(body);
+                    String senderName = getString(body);
+                    RedPacket.RedPacketType packetType = RedPacket.RedPacketType.values()[body.get()];
+                    long totalAmount = body.getLong();
+                    int totalCount = body.getInt();
+                    long createTime = body.getLong();
+                    long expireTime = body.getLong();
+                    packets.put(id, new PacketImage(id, senderId, senderName, packetType,
+                            totalAmount, totalCount, createTime, expireTime, new HashMap<>()));
+                }
+                case TYPE_CLAIM -> {
+                    long packetId = body.getLong();
+                    String playerId = getString(body);
+                    long amount = body.getLong();
+                    boolean settled = body.get() != 0;
+                    PacketImage image = packets.get(packetId);
+                    if (image != null) {
+                        image.claims().put(playerId, amount);
+                    }
+                    if (!settled) {
+                        unsettledClaims.put(new ClaimKey(packetId, playerId), amount);
+                    }
+                }
+                case TYPE_CLAIM_PAID -> unsettledClaims.remove(new ClaimKey(body.getLong(), getString(body)));
+                case TYPE_CLAIM_DEFERRED -> {
+                    ClaimKey key = new ClaimKey(body.getLong(), getString(body));
+                    Long amount = unsettledClaims.remove(key);
+                    if (amount != null) {
+                        pendingClaimRetries.merge(key.playerId(), amount, Long::sum);
+                    }
+                }
+                case TYPE_EXPIRE -> {
+                    packets.remove(body.getLong());
+                    String senderId = getString(body);
+                    long refund = body.getLong();
+                    if (refund > 0) {
+                        pendingRefunds.merge(senderId, refund, Long::sum);
+                    }
+                }
+                case TYPE_PENDING_REFUND -> pendingRefunds.merge(getString(body), body.getLong(), Long::sum);
+                case TYPE_PENDING_CLAIM_RETRY -> pendingClaimRetries.merge(getString(body), body.getLong(), Long::sum);
+                case TYPE_REFUND_PAID -> {
+                    String playerId = getString(body);
+                    long refundPaid = body.getLong();
+                    long retryPaid = body.getLong();
+                    pendingRefunds.computeIfPresent(playerId, (k, v) -> v - refundPaid > 0 ? v - refundPaid : null);
+                    pendingClaimRetries.computeIfPresent(playerId, (k, v) -> v - retryPaid > 0 ? v - retryPaid : null);
+                }
+                default -> throw new CorruptRecordException("Unknown journal record type " + type);
+            }
+        }
+
+        /**
+         * 把存款没有结果的领取（崩溃时还在合并窗口或 Vault 调用中）转为待补发
+         *
+         * @return 转换的领取数
+         */
+        private int deferUnsettledClaims() {
+            for (Map.Entry<ClaimKey, Long> claim : unsettledClaims.entrySet()) {
+                pendingClaimRetries.merge(claim.getKey().playerId(), claim.getValue(), Long::sum);
+            }
+            int count = unsettledClaims.size();
+            unsettledClaims.clear();
+            return count;
+        }
+
+        /**
+         * 获取尚未领完的红包（已领完的会被丢弃）
+         */
+        public List<PacketImage> getLivePackets() {
+            List<PacketImage> live = new ArrayList<>();
+            for (PacketImage image : packets.values()) {
+                if (image.claims().size() < image.totalCount()) {
+                    live.add(image);
+                }
+            }
+            return live;
+        }
+
+        /**
+         * 获取待退款（玩家 ID -> 分）
+         */
+        public Map<String, Long> getPendingRefunds() {
+            return pendingRefunds;
+        }
+
+        /**
+         * 获取待补发的领取金额（玩家 ID -> 分）
+         */
+        public Map<String, Long> getPendingClaimRetries() {
+            return pendingClaimRetries;
+        }
+    }
+
+    private record ClaimKey(long packetId, String playerId) {
+    }
+
+    /**
+     * 重放得到的单个红包
+     */
+    public record PacketImage(long id, String senderId, String senderName, RedPacket.RedPacketType type,
+                              long totalAmount, int totalCount, long createTime, long expireTime,
+                              Map<String, Long> claims) {
+        public RedPacket toRedPacket() {
+            return RedPacket.restore(id, senderId, senderName, type, totalAmount, totalCount,
+                    createTime, expireTime, claims);
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package com.bSHongbao.task;
 
 import com.bSHongbao.BSHongbao;
-import com.bSHongbao.model.RedPacket;
 import com.bSHongbao.util.SchedulerCompat;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.util.List;
+import java.util.logging.Level;
 
 /**
  * 红包定时任务
@@ -15,6 +14,9 @@ import java.util.List;
 public class RedPacketTask {
     private final BSHongbao plugin;
     private SchedulerCompat.CancellableTask repeatingTask;
+    private SchedulerCompat.CancellableTask expiryTask;
+    private SchedulerCompat.CancellableTask claimDigestTask;
+    private SchedulerCompat.CancellableTask sessionPurgeTask;
 
     public RedPacketTask(BSHongbao plugin) {
         this.plugin = plugin;
@@ -22,32 +24,53 @@ public class RedPacketTask {
 
     public void run() {
         try {
-            // 处理过期的红包
-            processExpiredPackets();
-
-            // 处理在线玩家的退款
+            // 处理在线玩家的退款（重试之前存款失败的退款）
             processOnlineRefunds();
 
         } catch (Exception e) {
-            plugin.getLogger().severe("Error in RedPacketTask: " + e.getMessage());
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                e.printStackTrace();
-            }
+            plugin.getLogger().log(Level.SEVERE, "Error in RedPacketTask", e);
         }
     }
 
     /**
-     * 处理过期的红包
+     * 处理过期的红包（每 tick 调用，只处理已到期的红包）
      */
     private void processExpiredPackets() {
-        List<RedPacket> expiredPackets = plugin.getRedPacketManager().getExpiredPackets();
+        try {
+            // 统一通过 RedPacketManager 进行原子过期处理与退款，避免重复逻辑
+            int processed = plugin.getRedPacketManager().processDueExpirations();
 
-        for (RedPacket packet : expiredPackets) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("Processing expired packet: " + packet.getId() + " by " + packet.getSenderName());
+            if (processed > 0 && plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Processed " + processed + " expired packet deadline(s)");
             }
-            // 统一通过 RedPacketManager 进行原子过期处理与退款，避免重复逻辑
-            plugin.getRedPacketManager().processExpiredPacket(packet.getId());
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error while processing expired packets", e);
+        }
+    }
+
+    /**
+     * 发送积累的领取汇总
+     */
+    private void flushClaimDigests() {
+        try {
+            plugin.getChatManager().flushClaimDigests();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error while broadcasting claim digests", e);
+        }
+    }
+
+    /**
+     * 清理到期的红包创建会话
+     */
+    private void purgeExpiredSessions() {
+        try {
+            int purged = plugin.getRedPacketGUI().purgeExpiredSessions();
+
+            if (purged > 0 && plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Purged " + purged + " expired creation session(s)");
+            }
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error while purging creation sessions", e);
         }
     }
 
@@ -64,11 +87,21 @@ public class RedPacketTask {
      * 启动定时任务
      */
     public void start() {
-        // 每30秒运行一次（30 * 20 ticks）
+        // 过期检查每 tick 运行一次，到期后一个 tick 内完成退款
+        this.expiryTask = SchedulerCompat.runAtFixedRateGlobal(plugin, this::processExpiredPackets, 1L, 1L);
+
+        // 领取汇总按配置间隔发送（始终运行，重载切换模式后仍能发出剩余汇总）
+        long digestInterval = plugin.getConfigManager().getClaimDigestIntervalTicks();
+        this.claimDigestTask = SchedulerCompat.runAtFixedRateGlobal(plugin, this::flushClaimDigests, digestInterval, digestInterval);
+
+        // 创建会话每秒清理一次到期条目
+        this.sessionPurgeTask = SchedulerCompat.runAtFixedRateGlobal(plugin, this::purgeExpiredSessions, 20L, 20L);
+
+        // 退款重试每30秒运行一次（30 * 20 ticks）
         this.repeatingTask = SchedulerCompat.runAtFixedRateGlobal(plugin, this::run, 20L, 600L);
 
         if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("RedPacketTask started with 30-second interval");
+            plugin.getLogger().info("RedPacketTask started with per-tick expiry and 30-second refund interval");
         }
     }
 
@@ -76,6 +109,32 @@ public class RedPacketTask {
      * 停止定时任务
      */
     public void stop() {
+        if (this.expiryTask != null) {
+            try {
+                this.expiryTask.cancel();
+            } finally {
+                this.expiryTask = null;
+            }
+        }
+
+        if (this.claimDigestTask != null) {
+            try {
+                this.claimDigestTask.cancel();
+            } finally {
+                this.claimDigestTask = null;
+            }
+            // 发送剩余的汇总
+            flushClaimDigests();
+        }
+
+        if (this.sessionPurgeTask != null) {
+            try {
+                this.sessionPurgeTask.cancel();
+            } finally {
+                this.sessionPurgeTask = null;
+            }
+        }
+
         if (this.repeatingTask != null) {
             try {
                 this.repeatingTask.cancel();
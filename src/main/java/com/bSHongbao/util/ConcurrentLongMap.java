@@ -0,0 +1,294 @@
+package com.bSHongbao.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 以原始 long 为键的并发映射
+ * Concurrent long-keyed map
+ * <p>
+ * 分段写时复制：读取无锁、无装箱（只读取分段的 volatile 表），写入在分段锁内复制该分段的开放寻址表。
+ * 适合读多写少的场景（如活跃红包索引：每次领取都查找，只有创建、领完、过期时才写入）。
+ */
+public final class ConcurrentLongMap<V> {
+    // 分段由哈希高位决定，低位留给分段内的表索引
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap() {
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    private static int hash(long key) {
+        // murmur3 fmix64，打散连续 ID
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static int segmentIndex(int hash) {
+        return hash >>> (Integer.SIZE - SEGMENT_BITS);
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return segments[segmentIndex(hash)];
+    }
+
+    public V get(long key) {
+        int hash = hash(key);
+        return segmentFor(hash).table.get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return 旧值，没有时返回 null
+     */
+    public V put(long key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * @return 已存在的值，放入成功时返回 null
+     */
+    public V putIfAbsent(long key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * 批量放入（已存在的键被覆盖）；每个分段只加锁并复制一次，适合一次创建大量红包
+     *
+     * @param keys   键
+     * @param values 与键一一对应的值
+     */
+    public void putAll(long[] keys, List<? extends V> values) {
+        if (keys.length != values.size()) {
+            throw new IllegalArgumentException("Got " + keys.length + " keys but " + values.size() + " values");
+        }
+        // 按分段计数排序，每个分段拿到连续的一段下标
+        int[] hashes = new int[keys.length];
+        int[] offsets = new int[SEGMENT_COUNT + 1];
+        for (int i = 0; i < keys.length; i++) {
+            hashes[i] = hash(keys[i]);
+            offsets[segmentIndex(hashes[i]) + 1]++;
+        }
+        for (int s = 0; s < SEGMENT_COUNT; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        int[] order = new int[keys.length];
+        int[] cursor = offsets.clone();
+        for (int i = 0; i < keys.length; i++) {
+            order[cursor[segmentIndex(hashes[i])]++] = i;
+        }
+        for (int s = 0; s < SEGMENT_COUNT; s++) {
+            if (offsets[s] < offsets[s + 1]) {
+                segments[s].putAll(keys, hashes, values, order, offsets[s], offsets[s + 1]);
+            }
+        }
+    }
+
+    /**
+     * @return 被移除的值，没有时返回 null
+     */
+    public V remove(long key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.table.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (Segment<V> segment : segments) {
+            if (segment.table.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取所有值的快照（弱一致）
+     */
+    public Collection<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            segment.table.collect(values);
+        }
+        return values;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.table = Table.empty();
+            }
+        }
+    }
+
+    private static final class Segment<V> {
+        private volatile Table<V> table = Table.empty();
+
+        private synchronized V put(long key, int hash, V value, boolean onlyIfAbsent) {
+            Table<V> current = table;
+            V previous = current.get(key, hash);
+            if (previous != null && onlyIfAbsent) {
+                return previous;
+            }
+            Table<V> next = Table.withCapacityFor(previous == null ? current.size + 1 : current.size);
+            current.copyInto(next, key);
+            next.insert(key, hash, value);
+            table = next;
+            return previous;
+        }
+
+        /**
+         * 放入 order[from, to) 指向的条目，只复制一次表
+         */
+        private synchronized void putAll(long[] keys, int[] hashes, List<? extends V> values,
+                                         int[] order, int from, int to) {
+            Table<V> current = table;
+            Table<V> next = Table.withCapacityFor(current.size + (to - from));
+            current.copyInto(next);
+            for (int i = from; i < to; i++) {
+                int index = order[i];
+                next.upsert(keys[index], hashes[index], values.get(index));
+            }
+            table = next;
+        }
+
+        private synchronized V remove(long key, int hash) {
+            Table<V> current = table;
+            V previous = current.get(key, hash);
+            if (previous == null) {
+                return null;
+            }
+            Table<V> next = Table.withCapacityFor(current.size - 1);
+            current.copyInto(next, key);
+            table = next;
+            return previous;
+        }
+    }
+
+    /**
+     * 发布后不再修改的开放寻址表（线性探测，值为 null 表示空槽）
+     */
+    private static final class Table<V> {
+        private static final Table<?> EMPTY = new Table<>(1);
+
+        private final long[] keys;
+        private final Object[] values;
+        private final int mask;
+        private int size;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Table<V> empty() {
+            return (Table<V>) EMPTY;
+        }
+
+        private static <V> Table<V> withCapacityFor(int entries) {
+            if (entries == 0) {
+                return empty();
+            }
+            // 负载因子不超过 0.5
+            int capacity = Integer.highestOneBit(Math.max(2, entries) * 2 - 1) << 1;
+            return new Table<>(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        private V get(long key, int hash) {
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                Object value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return (V) value;
+                }
+            }
+        }
+
+        private void insert(long key, int hash, Object value) {
+            int i = hash & mask;
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        /**
+         * 放入或覆盖（只用于尚未发布的表）
+         */
+        private void upsert(long key, int hash, Object value) {
+            int i = hash & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        /**
+         * 复制所有条目
+         */
+        private void copyInto(Table<V> target) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    target.insert(keys[i], hash(keys[i]), values[i]);
+                }
+            }
+        }
+
+        /**
+         * 复制除 excludedKey 以外的所有条目
+         */
+        private void copyInto(Table<V> target, long excludedKey) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null && keys[i] != excludedKey) {
+                    target.insert(keys[i], hash(keys[i]), values[i]);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void collect(List<V> out) {
+            for (Object value : values) {
+                if (value != null) {
+                    out.add((V) value);
+                }
+            }
+        }
+    }
+}
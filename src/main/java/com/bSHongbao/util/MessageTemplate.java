@@ -0,0 +1,143 @@
+package com.bSHongbao.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的消息模板
+ * Compiled Message Template
+ * <p>
+ * 加载配置时把消息拆成"文字段 + 占位符段"，占位符按声明顺序对应参数位置；
+ * 渲染时一次遍历写入线程复用的 StringBuilder，不再对整条消息反复 replace。
+ * <p>
+ * 示例：
+ *   MessageTemplate t = MessageTemplate.compile("&a领取了 {amount}，剩余 {count} 份", "{amount}", "{count}");
+ *   t.render("12.50", 3); // "&a领取了 12.50，剩余 3 份"
+ */
+public final class MessageTemplate {
+    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.legacySection();
+    // 复用的构建器超过该长度后丢弃，避免偶发的超长消息长期占用内存
+    private static final int MAX_REUSED_CAPACITY = 4096;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String source;
+    private final String[] placeholders;
+    // literals.length == slots.length + 1，渲染顺序为 literals[0] slot[0] literals[1] ... literals[n]
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+
+    private MessageTemplate(String source, String[] placeholders, String[] literals, int[] slots) {
+        this.source = source;
+        this.placeholders = placeholders;
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param text         消息文本
+     * @param placeholders 占位符（如 "{amount}"），其顺序即渲染参数的顺序
+     */
+    public static MessageTemplate compile(String text, String... placeholders) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+
+        while (i < text.length()) {
+            int matched = -1;
+            for (int p = 0; p < placeholders.length; p++) {
+                String placeholder = placeholders[p];
+                if (!placeholder.isEmpty() && text.startsWith(placeholder, i)) {
+                    matched = p;
+                    break;
+                }
+            }
+            if (matched < 0) {
+                i++;
+                continue;
+            }
+            literals.add(text.substring(literalStart, i));
+            slots.add(matched);
+            i += placeholders[matched].length();
+            literalStart = i;
+        }
+        literals.add(text.substring(literalStart));
+
+        int[] slotArray = new int[slots.size()];
+        for (int s = 0; s < slotArray.length; s++) {
+            slotArray[s] = slots.get(s);
+        }
+        return new MessageTemplate(text, placeholders.clone(), literals.toArray(new String[0]), slotArray);
+    }
+
+    /**
+     * 渲染消息；缺少的参数保留占位符原文
+     */
+    public String render(Object... args) {
+        return renderWithPrefix(null, args);
+    }
+
+    /**
+     * 渲染消息并加上前缀（前缀为 null 时不加）
+     */
+    public String renderWithPrefix(String prefix, Object... args) {
+        if (slots.length == 0) {
+            return prefix == null ? source : prefix + source;
+        }
+
+        StringBuilder builder = BUILDER.get();
+        if (builder.capacity() > MAX_REUSED_CAPACITY) {
+            builder = new StringBuilder(256);
+            BUILDER.set(builder);
+        }
+        builder.setLength(0);
+        builder.ensureCapacity(literalLength + slots.length * 16 + (prefix == null ? 0 : prefix.length()));
+
+        if (prefix != null) {
+            builder.append(prefix);
+        }
+        appendTo(builder, args);
+        return builder.toString();
+    }
+
+    /**
+     * 将渲染结果追加到指定的构建器
+     */
+    public void appendTo(StringBuilder builder, Object... args) {
+        builder.append(literals[0]);
+        for (int s = 0; s < slots.length; s++) {
+            int slot = slots[s];
+            if (slot < args.length) {
+                builder.append(args[slot]);
+            } else {
+                builder.append(placeholders[slot]);
+            }
+            builder.append(literals[s + 1]);
+        }
+    }
+
+    /**
+     * 渲染为 Adventure 组件（消息中的颜色代码为 § 格式）
+     */
+    public Component renderComponent(Object... args) {
+        return LEGACY.deserialize(render(args));
+    }
+
+    /**
+     * 获取模板原文
+     */
+    public String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,71 @@
+package com.bSHongbao.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额工具类
+ * <p>
+ * 插件内部统一使用 long 类型的"分"（1/100 货币单位）表示金额，
+ * 只有在与 Vault 交互或解析玩家输入时才转换为 double / BigDecimal。
+ */
+public final class Money {
+    /** 每个货币单位对应的分数 */
+    public static final long CENTS_PER_UNIT = 100L;
+
+    private Money() {}
+
+    /**
+     * BigDecimal 转换为分（四舍五入到两位小数）
+     */
+    public static long ofDecimal(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * double 转换为分（用于读取 Vault 返回的余额）
+     */
+    public static long ofDouble(double amount) {
+        return ofDecimal(BigDecimal.valueOf(amount));
+    }
+
+    /**
+     * 分转换为 BigDecimal（两位小数）
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * 分转换为 double（用于调用 Vault）
+     */
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * 解析金额字符串为分
+     *
+     * @throws NumberFormatException 字符串不是合法数字时抛出
+     */
+    public static long parse(String amount) {
+        return ofDecimal(new BigDecimal(amount));
+    }
+
+    /**
+     * 格式化为两位小数的纯文本（如 1234.50）
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long abs = Math.abs(cents);
+        long fraction = abs % CENTS_PER_UNIT;
+        sb.append(abs / CENTS_PER_UNIT).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.bSHongbao.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 多生产者单消费者的有界环形缓冲区（无锁）
+ * Multi-Producer Single-Consumer Ring Buffer
+ * <p>
+ * 生产者用一次 CAS 占位再写入槽位，缓冲区满时直接丢弃并计数，永不阻塞；
+ * 只允许一个线程调用 {@link #drain}。
+ */
+public final class MpscRingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // 只由消费者线程写入
+    private volatile long head;
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public MpscRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 发布一个元素
+     *
+     * @return 缓冲区已满时返回 false（元素被丢弃）
+     */
+    public boolean offer(T element) {
+        while (true) {
+            long position = tail.get();
+            if (position - head > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.set((int) position & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 取出已发布的元素；遇到已占位但尚未写入的槽位时停止，留到下次
+     *
+     * @return 取出的元素数
+     */
+    public int drain(Consumer<? super T> consumer) {
+        long position = head;
+        int drained = 0;
+        while (true) {
+            int index = (int) position & mask;
+            T element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            position++;
+            head = position;
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    /**
+     * 当前大约的元素数
+     */
+    public int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+
+    /**
+     * 因缓冲区满而丢弃的元素数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
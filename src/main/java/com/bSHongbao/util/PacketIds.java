@@ -0,0 +1,93 @@
+package com.bSHongbao.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 红包 ID 生成与编码
+ * Packet ID generator and codec
+ * <p>
+ * ID 为单调递增的 64 位整数，以 (当前毫秒 - 纪元) << 10 作为起点，重启后新 ID 仍大于旧 ID；
+ * 生成只需一次原子自增。对外（点击命令、日志）使用 base-62 编码，通常 8 个字符。
+ */
+public final class PacketIds {
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCH_MILLIS = 1704067200000L;
+    private static final int SEQUENCE_BITS = 10;
+    private static final char[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final int RADIX = ALPHABET.length;
+    // 最长编码长度（Long.MAX_VALUE 的 base-62 为 11 位）
+    private static final int MAX_ENCODED_LENGTH = 11;
+
+    private static final AtomicLong NEXT =
+            new AtomicLong(Math.max(1L, System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS);
+
+    private PacketIds() {}
+
+    /**
+     * 生成新的红包 ID
+     */
+    public static long next() {
+        return NEXT.getAndIncrement();
+    }
+
+    /**
+     * 确保之后生成的 ID 大于已有的 ID（从日志恢复红包后调用）
+     */
+    public static void advancePast(long id) {
+        NEXT.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * 编码为 base-62 字符串
+     */
+    public static String encode(long id) {
+        if (id == 0) {
+            return "0";
+        }
+        char[] buffer = new char[MAX_ENCODED_LENGTH];
+        int position = buffer.length;
+        long value = id;
+        while (value > 0) {
+            buffer[--position] = ALPHABET[(int) (value % RADIX)];
+            value /= RADIX;
+        }
+        return new String(buffer, position, buffer.length - position);
+    }
+
+    /**
+     * 解析 base-62 字符串
+     *
+     * @return ID，格式无效时返回 -1
+     */
+    public static long decode(String text) {
+        if (text == null || text.isEmpty() || text.length() > MAX_ENCODED_LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int digit = digit(text.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            if (value > (Long.MAX_VALUE - digit) / RADIX) {
+                return -1;
+            }
+            value = value * RADIX + digit;
+        }
+        return value;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+}
@@ -1,14 +1,18 @@
 package com.bSHongbao.util;
 
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 像 ChatColor 一样使用 MiniMessage 的快捷工具类
@@ -33,6 +37,7 @@ public final class PlgColor {
     // ---------- 前缀相关变量 ----------
     public static String PREFIX_RAW;        // 从配置读取的原始字符串（可能包含 & 或 § 颜色码）
     public static String PREFIX_MM;         // 转换为 MiniMessage 标签后的字符串
+    public static Component PREFIX_COMPONENT = Component.empty(); // 解析好的前缀组件
 
     // ---------- 颜色常量（MiniMessage 开始标签） ----------
     public static final String BLACK = "<black>";
@@ -62,38 +67,61 @@ public final class PlgColor {
     // 重置标签（关闭所有已打开的样式/颜色）
     public static final String RESET = "<reset>";
 
-    // ---------- 传统颜色代码映射表 ----------
-    private static final Map<Character, String> LEGACY_TO_MM = new HashMap<>();
+    // ---------- 传统颜色代码映射表（按字符直接索引，大小写均可） ----------
+    private static final String[] CODE_TAGS = new String[128];
+    private static final TextColor[] CODE_COLORS = new TextColor[128];
+    private static final TextDecoration[] CODE_DECORATIONS = new TextDecoration[128];
 
-    // 正则：匹配 &x 开头的 16 进制颜色序列（如 &x&F&F&0&0&0&0）
-    private static final Pattern HEX_PATTERN = Pattern.compile("&x(&[0-9A-Fa-f]){6}");
+    // ---------- 组件缓存 ----------
+    // 前缀、固定提示等重复出现的文本只解析一次；组件不可变，可在线程间共享
+    private static final int COMPONENT_CACHE_SIZE = 256;
+    private static final Map<String, Component> COMPONENT_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, Component>(COMPONENT_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+                    return size() > COMPONENT_CACHE_SIZE;
+                }
+            });
 
     static {
         // 颜色 0-9, a-f
-        LEGACY_TO_MM.put('0', "black");
-        LEGACY_TO_MM.put('1', "dark_blue");
-        LEGACY_TO_MM.put('2', "dark_green");
-        LEGACY_TO_MM.put('3', "dark_aqua");
-        LEGACY_TO_MM.put('4', "dark_red");
-        LEGACY_TO_MM.put('5', "dark_purple");
-        LEGACY_TO_MM.put('6', "gold");
-        LEGACY_TO_MM.put('7', "gray");
-        LEGACY_TO_MM.put('8', "dark_gray");
-        LEGACY_TO_MM.put('9', "blue");
-        LEGACY_TO_MM.put('a', "green");
-        LEGACY_TO_MM.put('b', "aqua");
-        LEGACY_TO_MM.put('c', "red");
-        LEGACY_TO_MM.put('d', "light_purple");
-        LEGACY_TO_MM.put('e', "yellow");
-        LEGACY_TO_MM.put('f', "white");
+        registerColor('0', "black", NamedTextColor.BLACK);
+        registerColor('1', "dark_blue", NamedTextColor.DARK_BLUE);
+        registerColor('2', "dark_green", NamedTextColor.DARK_GREEN);
+        registerColor('3', "dark_aqua", NamedTextColor.DARK_AQUA);
+        registerColor('4', "dark_red", NamedTextColor.DARK_RED);
+        registerColor('5', "dark_purple", NamedTextColor.DARK_PURPLE);
+        registerColor('6', "gold", NamedTextColor.GOLD);
+        registerColor('7', "gray", NamedTextColor.GRAY);
+        registerColor('8', "dark_gray", NamedTextColor.DARK_GRAY);
+        registerColor('9', "blue", NamedTextColor.BLUE);
+        registerColor('a', "green", NamedTextColor.GREEN);
+        registerColor('b', "aqua", NamedTextColor.AQUA);
+        registerColor('c', "red", NamedTextColor.RED);
+        registerColor('d', "light_purple", NamedTextColor.LIGHT_PURPLE);
+        registerColor('e', "yellow", NamedTextColor.YELLOW);
+        registerColor('f', "white", NamedTextColor.WHITE);
 
         // 样式 k-o, r
-        LEGACY_TO_MM.put('k', "obfuscated");
-        LEGACY_TO_MM.put('l', "bold");
-        LEGACY_TO_MM.put('m', "strikethrough");
-        LEGACY_TO_MM.put('n', "underlined");
-        LEGACY_TO_MM.put('o', "italic");
-        LEGACY_TO_MM.put('r', "reset");
+        registerDecoration('k', "obfuscated", TextDecoration.OBFUSCATED);
+        registerDecoration('l', "bold", TextDecoration.BOLD);
+        registerDecoration('m', "strikethrough", TextDecoration.STRIKETHROUGH);
+        registerDecoration('n', "underlined", TextDecoration.UNDERLINED);
+        registerDecoration('o', "italic", TextDecoration.ITALIC);
+        registerDecoration('r', "reset", null);
+    }
+
+    private static void registerColor(char code, String tag, TextColor color) {
+        registerDecoration(code, tag, null);
+        CODE_COLORS[code] = color;
+        CODE_COLORS[Character.toUpperCase(code)] = color;
+    }
+
+    private static void registerDecoration(char code, String tag, TextDecoration decoration) {
+        CODE_TAGS[code] = "<" + tag + ">";
+        CODE_TAGS[Character.toUpperCase(code)] = CODE_TAGS[code];
+        CODE_DECORATIONS[code] = decoration;
+        CODE_DECORATIONS[Character.toUpperCase(code)] = decoration;
     }
 
     private PlgColor() {}
@@ -111,6 +139,8 @@ public final class PlgColor {
     public static void setPrefix(String rawPrefix) {
         PREFIX_RAW = rawPrefix;
         PREFIX_MM = convertLegacyToMiniMessage(rawPrefix);
+        PREFIX_COMPONENT = toComponent(rawPrefix);
+        COMPONENT_CACHE.clear();
     }
 
     /**
@@ -119,52 +149,172 @@ public final class PlgColor {
      * 支持的 16 进制格式：
      *   - &#RRGGBB  -> <#RRGGBB>
      *   - &x&R&R&G&G&B&B -> <#RRGGBB> （传统格式，每个颜色分量两个字符）
+     * <p>
+     * 单次扫描完成转换，不使用正则；无法识别的 § 按 & 原样输出。
      *
      * @param input 可能包含传统颜色代码的字符串（& 或 § 开头）
      * @return 转换后的 MiniMessage 字符串
      */
     public static String convertLegacyToMiniMessage(String input) {
         if (input == null || input.isEmpty()) return "";
+        if (input.indexOf('&') < 0 && input.indexOf('§') < 0) return input;
+
+        int length = input.length();
+        StringBuilder out = new StringBuilder(length + 16);
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (!isCodeMarker(c)) {
+                out.append(c);
+                i++;
+                continue;
+            }
 
-        // 统一将 § 替换为 &，确保后续处理能识别所有颜色代码
-        input = input.replace('§', '&');
-
-        // 第一步：处理 &#RRGGBB 格式
-        input = input.replaceAll("&#([0-9A-Fa-f]{6})", "<#$1>");
-
-        // 第二步：处理 &x 16 进制格式
-        StringBuffer sb = new StringBuffer();
-        Matcher hexMatcher = HEX_PATTERN.matcher(input);
-        while (hexMatcher.find()) {
-            String hexSeq = hexMatcher.group();
-            // 提取颜色分量：去掉 "&x" 和中间的 "&"，拼接成 RRGGBB
-            StringBuilder hex = new StringBuilder();
-            for (int i = 2; i < hexSeq.length(); i += 2) { // 跳过 "&x"，然后每两个字符一组
-                char c = hexSeq.charAt(i + 1); // 取 & 后面的字符（如 'F'）
-                hex.append(c);
+            int hexLength = hexColorLength(input, i);
+            if (hexLength > 0) {
+                out.append("<#");
+                appendHexDigits(out, input, i, hexLength);
+                out.append('>');
+                i += hexLength;
+                continue;
+            }
+
+            String tag = i + 1 < length ? codeTag(input.charAt(i + 1)) : null;
+            if (tag != null) {
+                out.append(tag);
+                i += 2;
+            } else {
+                out.append('&');
+                i++;
             }
-            String hexColor = hex.toString(); // 例如 "FF0000"
-            hexMatcher.appendReplacement(sb, "<#" + hexColor + ">");
         }
-        hexMatcher.appendTail(sb);
-        String afterHex = sb.toString();
-
-        // 第三步：处理单个 & 颜色代码（如 &c, &l 等）
-        Pattern singlePattern = Pattern.compile("&([0-9a-fk-orA-FK-OR])");
-        Matcher singleMatcher = singlePattern.matcher(afterHex);
-        sb = new StringBuffer();
-        while (singleMatcher.find()) {
-            char code = Character.toLowerCase(singleMatcher.group(1).charAt(0));
-            String mmTag = LEGACY_TO_MM.get(code);
-            if (mmTag != null) {
-                singleMatcher.appendReplacement(sb, "<" + mmTag + ">");
+        return out.toString();
+    }
+
+    /**
+     * 将传统颜色代码直接解析为 Component，结果与 parse(convertLegacyToMiniMessage(input)) 显示一致
+     * <p>
+     * 不含 MiniMessage 标签时单次扫描直接构建组件，跳过中间字符串与 MiniMessage 解析；
+     * 含有 '<' 时按 MiniMessage 处理，以保留配置中手写的标签。
+     *
+     * @param input 可能包含传统颜色代码的字符串
+     * @return Adventure Component 对象
+     */
+    public static Component toComponent(String input) {
+        if (input == null || input.isEmpty()) return Component.empty();
+        if (input.indexOf('<') >= 0) return parse(convertLegacyToMiniMessage(input));
+        if (input.indexOf('&') < 0 && input.indexOf('§') < 0) return Component.text(input);
+
+        TextComponent.Builder builder = Component.text();
+        StringBuilder segment = new StringBuilder(input.length());
+        Style style = Style.empty();
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (!isCodeMarker(c)) {
+                segment.append(c);
+                i++;
+                continue;
+            }
+
+            int hexLength = hexColorLength(input, i);
+            char code = i + 1 < length ? input.charAt(i + 1) : 0;
+            if (hexLength == 0 && codeTag(code) == null) {
+                segment.append('&');
+                i++;
+                continue;
+            }
+
+            // 遇到颜色代码时先输出已累积的文字，再切换样式
+            if (segment.length() > 0) {
+                builder.append(Component.text(segment.toString(), style));
+                segment.setLength(0);
+            }
+            if (hexLength > 0) {
+                style = style.color(TextColor.color(parseHexColor(input, i, hexLength)));
+                i += hexLength;
+                continue;
+            }
+            // 与 MiniMessage 的非闭合标签一致：颜色覆盖颜色，样式叠加，reset 清空
+            if (CODE_COLORS[code] != null) {
+                style = style.color(CODE_COLORS[code]);
+            } else if (CODE_DECORATIONS[code] != null) {
+                style = style.decoration(CODE_DECORATIONS[code], true);
             } else {
-                // 理论上不会发生，因为正则限制了范围
-                singleMatcher.appendReplacement(sb, "&" + code);
+                style = Style.empty();
+            }
+            i += 2;
+        }
+        if (segment.length() > 0) {
+            builder.append(Component.text(segment.toString(), style));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 带缓存的 toComponent，适用于前缀、固定提示等重复出现的文本
+     * <p>
+     * 缓存按最近使用淘汰，最多保留 256 条；含金额、玩家名等每次不同的文本请直接使用 toComponent。
+     */
+    public static Component toCachedComponent(String input) {
+        if (input == null) return Component.empty();
+        Component component = COMPONENT_CACHE.get(input);
+        if (component == null) {
+            component = toComponent(input);
+            COMPONENT_CACHE.put(input, component);
+        }
+        return component;
+    }
+
+    private static boolean isCodeMarker(char c) {
+        return c == '&' || c == '§';
+    }
+
+    private static String codeTag(char code) {
+        return code < CODE_TAGS.length ? CODE_TAGS[code] : null;
+    }
+
+    /**
+     * 返回 i 处 16 进制颜色序列的长度：&#RRGGBB 为 8，&x&R&R&G&G&B&B 为 14，不是则为 0
+     */
+    private static int hexColorLength(String input, int i) {
+        int length = input.length();
+        if (i + 1 >= length) return 0;
+
+        char kind = input.charAt(i + 1);
+        if (kind == '#' && i + 8 <= length) {
+            for (int k = i + 2; k < i + 8; k++) {
+                if (Character.digit(input.charAt(k), 16) < 0) return 0;
             }
+            return 8;
         }
-        singleMatcher.appendTail(sb);
-        return sb.toString();
+        if (kind == 'x' && i + 14 <= length) {
+            for (int k = i + 2; k < i + 14; k += 2) {
+                if (!isCodeMarker(input.charAt(k)) || Character.digit(input.charAt(k + 1), 16) < 0) return 0;
+            }
+            return 14;
+        }
+        return 0;
+    }
+
+    private static void appendHexDigits(StringBuilder out, String input, int i, int hexLength) {
+        if (hexLength == 8) {
+            out.append(input, i + 2, i + 8);
+        } else {
+            for (int k = i + 3; k < i + 14; k += 2) {
+                out.append(input.charAt(k));
+            }
+        }
+    }
+
+    private static int parseHexColor(String input, int i, int hexLength) {
+        int rgb = 0;
+        int step = hexLength == 8 ? 1 : 2;
+        for (int k = hexLength == 8 ? i + 2 : i + 3; k < i + hexLength; k += step) {
+            rgb = (rgb << 4) | Character.digit(input.charAt(k), 16);
+        }
+        return rgb;
     }
 
     /**
@@ -188,23 +338,28 @@ public final class PlgColor {
     }
 
     /**
-     * 发送自动转换后的消息（内部调用 convertLegacyToMiniMessage）
+     * 发送自动转换后的消息（内部调用 toCachedComponent）
      *
      * @param receiver 接收者
      * @param message  可包含传统颜色代码的原始消息
      */
     public static void sendConvertedMessage(CommandSender receiver, String message) {
-        sendMessage(receiver, convertLegacyToMiniMessage(message));
+        receiver.sendMessage(toCachedComponent(message));
     }
 
     /**
-     * 发送带前缀的消息（前缀自动使用已转换的 PREFIX_MM，消息部分自动转换）
+     * 发送带前缀的消息（前缀使用已解析的 PREFIX_COMPONENT，消息部分自动转换）
+     * <p>
+     * 前缀与消息是并列的子组件，前缀的样式不会延续到消息上，效果等同于在两者之间插入 reset。
      *
      * @param receiver 接收者
      * @param message  可包含传统颜色代码的原始消息（不带前缀）
      */
     public static void sendPrefixedMessage(CommandSender receiver, String message) {
-        sendMessage(receiver, PREFIX_MM + RESET + convertLegacyToMiniMessage(message));
+        receiver.sendMessage(Component.text()
+                .append(PREFIX_COMPONENT)
+                .append(toCachedComponent(message))
+                .build());
     }
 
     /**
@@ -1,11 +1,15 @@
 package com.bSHongbao.util;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.util.Objects;
+import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * 深度兼容 Folia, Paper 和 Spigot 的调度器工具类
@@ -13,6 +17,9 @@ import java.util.Objects;
 public final class SchedulerCompat {
     private static final boolean IS_FOLIA = detectFolia();
 
+    // Folia 默认以 16x16 区块为一个区域分组单位（regionChunkShift = 4）
+    private static final int REGION_CHUNK_SHIFT = 4;
+
     private SchedulerCompat() {}
 
     private static boolean detectFolia() {
@@ -84,4 +91,57 @@ public final class SchedulerCompat {
             return bukkitTask::cancel;
         }
     }
+
+    /**
+     * 对一组玩家并行执行操作（如发送消息）
+     * Folia 下按玩家所在区域分组，每组在其区域线程上执行；Paper/Spigot 下在当前线程逐个执行
+     */
+    public static void fanOut(Plugin plugin, Collection<? extends Player> players, Consumer<? super Player> action) {
+        if (!IS_FOLIA) {
+            for (Player player : players) {
+                action.accept(player);
+            }
+            return;
+        }
+
+        // 按 世界 + 区域坐标 分组
+        Map<RegionKey, List<Player>> groups = new HashMap<>();
+        for (Player player : players) {
+            Location location = player.getLocation();
+            World world = location.getWorld();
+            if (world == null) {
+                runEntityTask(plugin, player, () -> action.accept(player), null);
+                continue;
+            }
+            RegionKey key = new RegionKey(world.getUID(),
+                    (location.getBlockX() >> 4) >> REGION_CHUNK_SHIFT,
+                    (location.getBlockZ() >> 4) >> REGION_CHUNK_SHIFT);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(player);
+        }
+
+        for (Map.Entry<RegionKey, List<Player>> entry : groups.entrySet()) {
+            List<Player> group = entry.getValue();
+            if (group.size() == 1) {
+                Player player = group.get(0);
+                runEntityTask(plugin, player, () -> action.accept(player), null);
+                continue;
+            }
+
+            RegionKey key = entry.getKey();
+            World world = group.get(0).getLocation().getWorld();
+            Bukkit.getRegionScheduler().execute(plugin, world,
+                    key.regionX() << REGION_CHUNK_SHIFT, key.regionZ() << REGION_CHUNK_SHIFT, () -> {
+                for (Player player : group) {
+                    // 调度期间玩家可能已移动到其他区域，交给其实体调度器处理
+                    if (Bukkit.isOwnedByCurrentRegion(player)) {
+                        action.accept(player);
+                    } else {
+                        runEntityTask(plugin, player, () -> action.accept(player), null);
+                    }
+                }
+            });
+        }
+    }
+
+    private record RegionKey(UUID worldId, int regionX, int regionZ) {}
 }
\ No newline at end of file
@@ -0,0 +1,467 @@
+package com.bSHongbao.simulation;
+
+import com.bSHongbao.BSHongbao;
+import com.bSHongbao.api.RedPacketSpec;
+import com.bSHongbao.listener.PlayerListener;
+import com.bSHongbao.manager.ConfigManager;
+import com.bSHongbao.manager.EconomyDispatcher;
+import com.bSHongbao.manager.Message;
+import com.bSHongbao.model.RedPacket;
+import com.bSHongbao.util.Money;
+import com.bSHongbao.util.PacketIds;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 领取流程负载模拟
+ * Claim Flow Load Simulation
+ * <p>
+ * 在进程内用模拟的服务器、玩家与经济插件启用真实的插件，按脚本创建红包、让所有玩家并发领取、
+ * 等待红包过期退款后停用插件，最后报告吞吐量、领取延迟分位数，以及钱是否有丢失或重复发放。
+ * <p>
+ * 用法：./gradlew simulate --args="players=1000 packets=200 latency-ms=2"
+ */
+public final class ClaimSimulation {
+    private static final String CLAIM_COMMAND = "/bshongbao_claim ";
+    private static final String MARKER = "\u0000";
+
+    /**
+     * 领取结果，按玩家收到的回复识别
+     */
+    private enum Outcome {
+        CLAIMED,
+        ALREADY_CLAIMED,
+        EMPTY,
+        NOT_FOUND,
+        OWN_PACKET,
+        DEPOSIT_FAILED
+    }
+
+    private final Options options;
+    private final SimulatedEconomy economy;
+    private final SimulatedServer server;
+    private final List<SimulatedPlayer> players = new ArrayList<>();
+    private final Queue<Long> packetIds = new ConcurrentLinkedQueue<>();
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final LongAdder duplicateClaims = new LongAdder();
+    private final AtomicInteger failedCreates = new AtomicInteger();
+    private final long[] latencies;
+    private final AtomicInteger latencyCount = new AtomicInteger();
+    private BSHongbao plugin;
+    private Map<String, Outcome> replies;
+    private String claimedPrefix;
+    private String claimedSuffix;
+
+    private ClaimSimulation(Options options) {
+        this.options = options;
+        this.economy = new SimulatedEconomy(options.latencyMicros(), options.depositFailureRate());
+        this.server = new SimulatedServer(economy.getEconomy());
+        this.latencies = new long[options.players() * options.claimsPerPlayer()];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(new ClaimSimulation(options).run());
+    }
+
+    /**
+     * @return 进程退出码，发现丢钱、多发或未应答的领取时为 1
+     */
+    private int run() throws Exception {
+        Path dataFolder = Files.createTempDirectory("bshongbao-sim");
+        writeConfig(dataFolder);
+        Bukkit.setServer(server.getServer());
+
+        long initialBalance = Money.ofDouble(options.balance());
+        for (int i = 0; i < options.players(); i++) {
+            SimulatedPlayer player = new SimulatedPlayer(server, "Sim" + i);
+            economy.open(player.getId(), initialBalance);
+            server.addPlayer(player.getPlayer());
+            players.add(player);
+        }
+        long initialTotal = economy.getTotal();
+
+        plugin = createPlugin(dataFolder);
+        server.setPlugin(plugin);
+        server.call(() -> {
+            setEnabled(plugin, true);
+            return null;
+        });
+        if (!plugin.isEnabled() || plugin.getRedPacketManager() == null) {
+            throw new IllegalStateException("Plugin failed to enable");
+        }
+        prepareReplies(plugin.getConfigManager());
+
+        System.out.printf(Locale.ROOT, "Simulating %d players, %d packets x %d shares, economy latency %dus, deposit failure rate %.3f%n",
+                options.players(), options.packets(), options.shares(), options.latencyMicros(), options.depositFailureRate());
+        System.out.println("Data folder: " + dataFolder);
+
+        long createNanos = createPackets();
+        long claimNanos = claimPackets();
+        int unanswered = latencies.length - latencyCount.get() - skippedClaims();
+        long expireNanos = options.expire() ? awaitExpiry() : 0L;
+
+        EconomyDispatcher dispatcher = plugin.getEconomyManager().getDispatcher();
+        long depositRequests = dispatcher.getDepositRequests();
+        long coalescedDeposits = dispatcher.getCoalescedDeposits();
+        server.call(() -> {
+            setEnabled(plugin, false);
+            return null;
+        });
+
+        long escrow = 0;
+        for (RedPacket packet : plugin.getRedPacketManager().getActivePackets()) {
+            escrow += packet.getRemainingAmount();
+        }
+        long pendingRefunds = 0;
+        for (SimulatedPlayer player : players) {
+            pendingRefunds += plugin.getRedPacketManager().getPendingRefundAmount(player.getId());
+        }
+        long balances = economy.getTotal();
+        server.shutdown();
+
+        long accountedDelta = balances + escrow + pendingRefunds - initialTotal;
+        long claims = latencyCount.get();
+        double claimSeconds = claimNanos / 1e9;
+        long[] sorted = Arrays.copyOf(latencies, latencyCount.get());
+        Arrays.sort(sorted);
+
+        System.out.println();
+        System.out.println("=== Claim simulation ===");
+        System.out.printf(Locale.ROOT, "create:     %d packet(s) in %.2fs, %d failed%n",
+                packetIds.size(), createNanos / 1e9, failedCreates.get());
+        System.out.printf(Locale.ROOT, "claims:     %d answered in %.2fs, %d unanswered%n", claims, claimSeconds, unanswered);
+        for (Outcome outcome : Outcome.values()) {
+            System.out.printf(Locale.ROOT, "  %-16s %d%n", outcome, outcomes[outcome.ordinal()].sum());
+        }
+        System.out.printf(Locale.ROOT, "throughput: %.0f claim(s)/s, %.0f successful claim(s)/s%n",
+                claims / claimSeconds, outcomes[Outcome.CLAIMED.ordinal()].sum() / claimSeconds);
+        System.out.printf(Locale.ROOT, "latency:    p50 %.3fms  p99 %.3fms  p999 %.3fms  max %.3fms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0D : sorted[sorted.length - 1] / 1e6);
+        if (options.expire()) {
+            System.out.printf(Locale.ROOT, "expiry:     all packets settled %.2fs after the claim phase%n", expireNanos / 1e9);
+        }
+        System.out.printf(Locale.ROOT, "economy:    %d deposit request(s), %d coalesced, %d Vault deposit(s), %d failed, %d withdrawal(s)%n",
+                depositRequests, coalescedDeposits, economy.getDeposits(), economy.getFailedDeposits(), economy.getWithdrawals());
+        System.out.printf(Locale.ROOT, "server:     %d task error(s), %d broadcast message(s) delivered%n",
+                server.getTaskErrors(), players.stream().mapToLong(SimulatedPlayer::getComponentCount).sum());
+        System.out.printf(Locale.ROOT, "money:      initial %s, balances %s, escrow %s, pending refunds %s%n",
+                Money.format(initialTotal), Money.format(balances), Money.format(escrow), Money.format(pendingRefunds));
+        System.out.printf(Locale.ROOT, "            lost %s, duplicated %s, duplicate claims %d%n",
+                Money.format(Math.max(0L, -accountedDelta)), Money.format(Math.max(0L, accountedDelta)), duplicateClaims.sum());
+
+        return accountedDelta != 0 || duplicateClaims.sum() != 0 || unanswered != 0 ? 1 : 0;
+    }
+
+    /**
+     * 通过红包服务（与 GUI 相同的扣款、创建、广播流程）创建全部红包，每次调用创建 batch 个
+     */
+    private long createPackets() throws InterruptedException {
+        long amount = Money.ofDouble(options.amount());
+        CountDownLatch created = new CountDownLatch(options.packets());
+        long start = System.nanoTime();
+        for (int first = 0, call = 0; first < options.packets(); first += options.batch(), call++) {
+            Player creator = players.get(call % options.creators()).getPlayer();
+            List<RedPacketSpec> specs = new ArrayList<>();
+            for (int i = first; i < Math.min(options.packets(), first + options.batch()); i++) {
+                specs.add(new RedPacketSpec(options.typeOf(i), amount, options.shares()));
+            }
+            server.execute(() -> plugin.getRedPacketService().createPackets(creator, specs).whenComplete((packets, error) -> {
+                if (error == null) {
+                    packets.forEach(packet -> packetIds.add(packet.getId()));
+                } else {
+                    failedCreates.addAndGet(specs.size());
+                    System.err.println("Failed to create " + specs.size() + " packet(s) for " + creator.getName() + ": " + error);
+                }
+                specs.forEach(spec -> created.countDown());
+            }));
+        }
+        if (!created.await(options.timeoutSeconds(), TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Packet creation did not finish in time");
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 所有玩家同时开始领取，每人同一时间只有一个未完成的领取，收到回复后立即发起下一个
+     */
+    private long claimPackets() throws InterruptedException {
+        List<Long> ids = new ArrayList<>(packetIds);
+        CountDownLatch finished = new CountDownLatch(players.size());
+        PlayerListener listener = server.getListener(PlayerListener.class);
+        List<Claimer> claimers = new ArrayList<>(players.size());
+        for (int i = 0; i < players.size(); i++) {
+            List<Long> targets = new ArrayList<>(ids);
+            Collections.shuffle(targets, new Random(options.seed() + i));
+            targets = targets.subList(0, Math.min(options.claimsPerPlayer(), targets.size()));
+            claimers.add(new Claimer(players.get(i), targets, listener, finished));
+        }
+
+        long start = System.nanoTime();
+        for (Claimer claimer : claimers) {
+            claimer.submitNext();
+        }
+        finished.await(options.timeoutSeconds(), TimeUnit.SECONDS);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 每个玩家因红包数量不足而少发起的领取数
+     */
+    private int skippedClaims() {
+        return players.size() * Math.max(0, options.claimsPerPlayer() - packetIds.size());
+    }
+
+    /**
+     * 等待所有红包过期、退款到账
+     */
+    private long awaitExpiry() throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MINUTES.toNanos(options.expireMinutes()) + TimeUnit.SECONDS.toNanos(options.timeoutSeconds());
+        while (System.nanoTime() < deadline) {
+            if (plugin.getRedPacketManager().getActivePacketCount() == 0 && !hasPendingRefunds()
+                    && plugin.getEconomyManager().getDispatcher().getPendingDepositCount() == 0) {
+                break;
+            }
+            Thread.sleep(100L);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private boolean hasPendingRefunds() {
+        for (SimulatedPlayer player : players) {
+            if (plugin.getRedPacketManager().getPendingRefundCount(player.getId()) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 预先渲染领取回复，用于识别玩家收到的文本属于哪种结果
+     */
+    private void prepareReplies(ConfigManager config) {
+        replies = new HashMap<>();
+        replies.put(config.format(Message.ALREADY_CLAIMED), Outcome.ALREADY_CLAIMED);
+        replies.put(config.format(Message.PACKET_EMPTY), Outcome.EMPTY);
+        replies.put(config.format(Message.PACKET_NOT_FOUND), Outcome.NOT_FOUND);
+        replies.put(config.format(Message.OWN_PACKET), Outcome.OWN_PACKET);
+        replies.put(config.format(Message.SYSTEM_ERROR), Outcome.DEPOSIT_FAILED);
+
+        String claimed = config.format(Message.PACKET_CLAIMED, MARKER);
+        int marker = claimed.indexOf(MARKER);
+        claimedPrefix = marker < 0 ? claimed : claimed.substring(0, marker);
+        claimedSuffix = marker < 0 ? "" : claimed.substring(marker + MARKER.length());
+    }
+
+    private Outcome classify(String text) {
+        Outcome outcome = replies.get(text);
+        if (outcome == null && text.startsWith(claimedPrefix) && text.endsWith(claimedSuffix)) {
+            return Outcome.CLAIMED;
+        }
+        return outcome;
+    }
+
+    private void writeConfig(Path dataFolder) throws IOException {
+        YamlConfiguration config;
+        try (Reader reader = new InputStreamReader(resource("config.yml"), StandardCharsets.UTF_8)) {
+            config = YamlConfiguration.loadConfiguration(reader);
+        }
+        config.set("redpacket.expiration-minutes", options.expireMinutes());
+        // 每个玩家同一时间只有一个领取，限流只会拖慢模拟
+        config.set("redpacket.claim-rate-limit.per-second", 0);
+        config.save(dataFolder.resolve("config.yml").toFile());
+    }
+
+    private BSHongbao createPlugin(Path dataFolder) throws Exception {
+        PluginDescriptionFile description;
+        try (InputStream in = resource("plugin.yml")) {
+            description = new PluginDescriptionFile(in);
+        }
+        // JavaPlugin 的无参构造方法要求由插件类加载器加载，这里使用插件为模拟保留的包内构造方法
+        Constructor<BSHongbao> constructor = BSHongbao.class.getDeclaredConstructor(
+                JavaPluginLoader.class, PluginDescriptionFile.class, File.class, File.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(new JavaPluginLoader(server.getServer()), description,
+                dataFolder.toFile(), dataFolder.resolve("BSHongbao.jar").toFile());
+    }
+
+    /**
+     * 与服务器启用/停用插件时相同：先切换状态，再调用 onEnable/onDisable
+     */
+    private static void setEnabled(JavaPlugin plugin, boolean enabled) throws ReflectiveOperationException {
+        Method method = JavaPlugin.class.getDeclaredMethod("setEnabled", boolean.class);
+        method.setAccessible(true);
+        method.invoke(plugin, enabled);
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream in = ClaimSimulation.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Resource " + name + " not found on the classpath");
+        }
+        return in;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0D;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    /**
+     * 单个玩家的领取脚本；回复在区域线程上到达，并在同一线程发起下一次领取
+     */
+    private final class Claimer {
+        private final Player player;
+        private final List<Long> targets;
+        private final PlayerListener listener;
+        private final CountDownLatch finished;
+        private final Set<Long> claimed = new HashSet<>();
+        private int next;
+        private long packetId;
+        private long startedNanos;
+
+        private Claimer(SimulatedPlayer player, List<Long> targets, PlayerListener listener, CountDownLatch finished) {
+            this.player = player.getPlayer();
+            this.targets = targets;
+            this.listener = listener;
+            this.finished = finished;
+            player.setTextListener(this::onText);
+        }
+
+        private void submitNext() {
+            if (next == targets.size()) {
+                finished.countDown();
+                return;
+            }
+            packetId = targets.get(next++);
+            startedNanos = System.nanoTime();
+            String command = CLAIM_COMMAND + PacketIds.encode(packetId);
+            server.execute(() -> listener.onPlayerCommandPreprocess(new PlayerCommandPreprocessEvent(player, command)));
+        }
+
+        private void onText(String text) {
+            Outcome outcome = classify(text);
+            if (outcome == null || startedNanos == 0) {
+                return;
+            }
+            latencies[latencyCount.getAndIncrement()] = System.nanoTime() - startedNanos;
+            outcomes[outcome.ordinal()].increment();
+            if (outcome == Outcome.CLAIMED && !claimed.add(packetId)) {
+                duplicateClaims.increment();
+            }
+            startedNanos = 0;
+            submitNext();
+        }
+    }
+
+    /**
+     * 模拟参数，命令行以 key=value 形式给出
+     */
+    private record Options(int players, int creators, int packets, int shares, double amount, double balance,
+                           String type, int batch, int claimsPerPlayer, long latencyMicros, double depositFailureRate,
+                           boolean expire, long expireMinutes, long seed, long timeoutSeconds) {
+        private static final String USAGE = "Options (key=value): players=1000 creators=20 packets=200 shares=50 "
+                + "amount=1000.00 balance=1000000.00 type=mixed|normal|lucky batch=1 claims-per-player=<packets> "
+                + "latency-ms=2 deposit-failure-rate=0 expire=true expire-minutes=1 seed=42 timeout-seconds=300";
+
+        private static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int split = arg.indexOf('=');
+                if (split <= 0) {
+                    throw new IllegalArgumentException("Invalid option: " + arg);
+                }
+                values.put(arg.substring(0, split), arg.substring(split + 1));
+            }
+
+            try {
+                int packets = Integer.parseInt(values.getOrDefault("packets", "200"));
+                Options options = new Options(
+                        Integer.parseInt(values.getOrDefault("players", "1000")),
+                        Integer.parseInt(values.getOrDefault("creators", "20")),
+                        packets,
+                        Integer.parseInt(values.getOrDefault("shares", "50")),
+                        Double.parseDouble(values.getOrDefault("amount", "1000.00")),
+                        Double.parseDouble(values.getOrDefault("balance", "1000000.00")),
+                        values.getOrDefault("type", "mixed").toLowerCase(Locale.ROOT),
+                        Integer.parseInt(values.getOrDefault("batch", "1")),
+                        Integer.parseInt(values.getOrDefault("claims-per-player", String.valueOf(packets))),
+                        (long) (Double.parseDouble(values.getOrDefault("latency-ms", "2")) * 1000),
+                        Double.parseDouble(values.getOrDefault("deposit-failure-rate", "0")),
+                        Boolean.parseBoolean(values.getOrDefault("expire", "true")),
+                        Long.parseLong(values.getOrDefault("expire-minutes", "1")),
+                        Long.parseLong(values.getOrDefault("seed", "42")),
+                        Long.parseLong(values.getOrDefault("timeout-seconds", "300")));
+                values.keySet().removeAll(List.of("players", "creators", "packets", "shares", "amount", "balance", "type", "batch",
+                        "claims-per-player", "latency-ms", "deposit-failure-rate", "expire", "expire-minutes", "seed",
+                        "timeout-seconds"));
+                if (!values.isEmpty()) {
+                    throw new IllegalArgumentException("Unknown option(s): " + values.keySet());
+                }
+                options.validate();
+                return options;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+            }
+        }
+
+        private void validate() {
+            if (players < 2 || creators < 1 || creators > players || packets < 1 || shares < 1 || batch < 1
+                    || claimsPerPlayer < 0) {
+                throw new IllegalArgumentException("Need players >= 2, 1 <= creators <= players, packets >= 1, shares >= 1, batch >= 1");
+            }
+            if (!type.equals("mixed") && !type.equals("normal") && !type.equals("lucky")) {
+                throw new IllegalArgumentException("Unknown packet type: " + type);
+            }
+            if (expireMinutes < 1 || depositFailureRate < 0 || depositFailureRate > 1) {
+                throw new IllegalArgumentException("Need expire-minutes >= 1 and 0 <= deposit-failure-rate <= 1");
+            }
+        }
+
+        private RedPacket.RedPacketType typeOf(int index) {
+            return switch (type) {
+                case "normal" -> RedPacket.RedPacketType.NORMAL;
+                case "lucky" -> RedPacket.RedPacketType.LUCKY;
+                default -> index % 2 == 0 ? RedPacket.RedPacketType.NORMAL : RedPacket.RedPacketType.LUCKY;
+            };
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.bSHongbao.simulation;
+
+import com.bSHongbao.util.Money;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.OfflinePlayer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 模拟经济插件
+ * Simulated Economy
+ * <p>
+ * 余额以分保存；存取款按配置的延迟阻塞调用线程（模拟数据库型经济插件），
+ * 存款可按比例注入失败。
+ */
+final class SimulatedEconomy implements InvocationHandler {
+    private final long latencyNanos;
+    private final double depositFailureRate;
+    private final Map<UUID, AtomicLong> balances = new ConcurrentHashMap<>();
+    private final LongAdder deposits = new LongAdder();
+    private final LongAdder withdrawals = new LongAdder();
+    private final LongAdder failedDeposits = new LongAdder();
+    private final Economy economy;
+
+    /**
+     * @param latencyMicros      每次存取款的延迟（微秒）
+     * @param depositFailureRate 存款失败的概率（0 ~ 1）
+     */
+    SimulatedEconomy(long latencyMicros, double depositFailureRate) {
+        this.latencyNanos = latencyMicros * 1000L;
+        this.depositFailureRate = depositFailureRate;
+        this.economy = SimulatedServer.proxy(Economy.class, this);
+    }
+
+    Economy getEconomy() {
+        return economy;
+    }
+
+    /**
+     * 开户并设置初始余额（分）
+     */
+    void open(UUID playerId, long balance) {
+        balances.put(playerId, new AtomicLong(balance));
+    }
+
+    long getBalance(UUID playerId) {
+        AtomicLong balance = balances.get(playerId);
+        return balance != null ? balance.get() : 0L;
+    }
+
+    /**
+     * 所有账户的余额之和（分）
+     */
+    long getTotal() {
+        long total = 0;
+        for (AtomicLong balance : balances.values()) {
+            total += balance.get();
+        }
+        return total;
+    }
+
+    long getDeposits() {
+        return deposits.sum();
+    }
+
+    long getWithdrawals() {
+        return withdrawals.sum();
+    }
+
+    long getFailedDeposits() {
+        return failedDeposits.sum();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getName" -> "SimulatedEconomy";
+            case "isEnabled", "hasAccount", "createPlayerAccount" -> true;
+            case "hasBankSupport" -> false;
+            case "fractionalDigits" -> 2;
+            case "format" -> Money.format(Money.ofDouble((Double) args[0]));
+            case "currencyNameSingular" -> "coin";
+            case "currencyNamePlural" -> "coins";
+            case "getBalance" -> Money.toDouble(getBalance(accountOf(args[0])));
+            case "has" -> getBalance(accountOf(args[0])) >= Money.ofDouble((Double) args[args.length - 1]);
+            case "withdrawPlayer" -> withdraw(accountOf(args[0]), Money.ofDouble((Double) args[args.length - 1]));
+            case "depositPlayer" -> deposit(accountOf(args[0]), Money.ofDouble((Double) args[args.length - 1]));
+            default -> SimulatedServer.defaultValue(method.getReturnType());
+        };
+    }
+
+    private EconomyResponse withdraw(UUID playerId, long amount) {
+        pause();
+        withdrawals.increment();
+        AtomicLong balance = balances.get(playerId);
+        while (balance != null) {
+            long current = balance.get();
+            if (current < amount) {
+                break;
+            }
+            if (balance.compareAndSet(current, current - amount)) {
+                return response(amount, current - amount, EconomyResponse.ResponseType.SUCCESS, null);
+            }
+        }
+        return response(0L, getBalance(playerId), EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
+    }
+
+    private EconomyResponse deposit(UUID playerId, long amount) {
+        pause();
+        deposits.increment();
+        AtomicLong balance = balances.get(playerId);
+        if (balance == null || ThreadLocalRandom.current().nextDouble() < depositFailureRate) {
+            failedDeposits.increment();
+            return response(0L, getBalance(playerId), EconomyResponse.ResponseType.FAILURE, "Injected failure");
+        }
+        long updated = balance.addAndGet(amount);
+        return response(amount, updated, EconomyResponse.ResponseType.SUCCESS, null);
+    }
+
+    private void pause() {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+
+    private static UUID accountOf(Object account) {
+        if (account instanceof OfflinePlayer player) {
+            return player.getUniqueId();
+        }
+        throw new UnsupportedOperationException("Name-based accounts are not simulated: " + account);
+    }
+
+    private static EconomyResponse response(long amount, long balance, EconomyResponse.ResponseType type, String error) {
+        return new EconomyResponse(Money.toDouble(amount), Money.toDouble(balance), type, error);
+    }
+}
@@ -0,0 +1,88 @@
+package com.bSHongbao.simulation;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 模拟玩家
+ * Simulated Player
+ * <p>
+ * 始终在线、拥有全部权限、站在出生点；文本消息交给监听器（用于识别领取结果），
+ * 组件消息（广播）只计数。
+ */
+final class SimulatedPlayer implements InvocationHandler {
+    private final UUID id;
+    private final String name;
+    private final SimulatedServer server;
+    private final Location location;
+    private final Player player;
+    private final LongAdder components = new LongAdder();
+    private volatile Consumer<String> textListener = text -> {};
+
+    SimulatedPlayer(SimulatedServer server, String name) {
+        this.id = UUID.nameUUIDFromBytes(("BSHongbao-Sim:" + name).getBytes());
+        this.name = name;
+        this.server = server;
+        this.location = new Location(server.getWorld(), 0, 64, 0);
+        this.player = SimulatedServer.proxy(Player.class, this);
+    }
+
+    Player getPlayer() {
+        return player;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    void setTextListener(Consumer<String> textListener) {
+        this.textListener = textListener;
+    }
+
+    /**
+     * 收到的组件消息数（红包公告与领取广播）
+     */
+    long getComponentCount() {
+        return components.sum();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getUniqueId" -> id;
+            case "getName", "getDisplayName", "getPlayerListName" -> name;
+            case "isOnline", "isValid", "hasPermission", "isPermissionSet", "hasPlayedBefore" -> true;
+            case "getLocation" -> location.clone();
+            case "getWorld" -> server.getWorld();
+            case "getScheduler" -> server.getEntityScheduler();
+            case "getServer" -> server.getServer();
+            case "sendMessage", "sendRawMessage" -> {
+                receive(args);
+                yield null;
+            }
+            default -> SimulatedServer.defaultValue(method.getReturnType());
+        };
+    }
+
+    private void receive(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof String text) {
+                textListener.accept(text);
+                return;
+            }
+            if (arg instanceof String[] lines) {
+                for (String line : lines) {
+                    textListener.accept(line);
+                }
+                return;
+            }
+        }
+        components.increment();
+    }
+}
@@ -0,0 +1,377 @@
+package com.bSHongbao.simulation;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import net.milkbowl.vault.economy.Economy;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredServiceProvider;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 进程内模拟服务器
+ * Simulated Server
+ * <p>
+ * 用动态代理实现插件用到的 Server、调度器、插件管理器与服务管理器。所有玩家位于同一个区域，
+ * 区域线程由单线程执行器模拟：立即执行的任务直接排队，延迟与周期任务按 50ms 一个 tick 换算。
+ */
+final class SimulatedServer {
+    static final long TICK_MILLIS = 50L;
+
+    private static final Logger LOGGER = Logger.getLogger("BSHongbao-Sim");
+
+    private final ScheduledExecutorService region;
+    private final ExecutorService async;
+    private final Map<UUID, Player> players = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger taskIds = new AtomicInteger();
+    private final LongAdder taskErrors = new LongAdder();
+    private final Server server;
+    private final World world;
+    private final Plugin vault;
+    private final RegisteredServiceProvider<Economy> economyProvider;
+    private final EntityScheduler entityScheduler;
+    private final Map<String, PluginCommand> commands = new ConcurrentHashMap<>();
+    private volatile Thread regionThread;
+    private volatile Plugin plugin;
+
+    SimulatedServer(Economy economy) {
+        this.region = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Sim-Region");
+            thread.setDaemon(true);
+            regionThread = thread;
+            return thread;
+        });
+        this.async = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "Sim-Async");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        UUID worldId = UUID.nameUUIDFromBytes("world".getBytes());
+        this.world = proxy(World.class, (p, method, args) -> switch (method.getName()) {
+            case "getName" -> "world";
+            case "getUID" -> worldId;
+            default -> defaultValue(method.getReturnType());
+        });
+        this.vault = proxy(Plugin.class, (p, method, args) -> switch (method.getName()) {
+            case "getName" -> "Vault";
+            case "isEnabled" -> true;
+            case "getLogger" -> LOGGER;
+            default -> defaultValue(method.getReturnType());
+        });
+        this.economyProvider = new RegisteredServiceProvider<>(Economy.class, economy, ServicePriority.Normal, vault);
+        this.entityScheduler = proxy(EntityScheduler.class, (p, method, args) -> schedule(method, args, false));
+
+        PluginManager pluginManager = proxy(PluginManager.class, this::handlePluginManager);
+        ServicesManager servicesManager = proxy(ServicesManager.class, (p, method, args) -> {
+            boolean economyRequested = args != null && args.length == 1 && args[0] == Economy.class;
+            return switch (method.getName()) {
+                case "getRegistration" -> economyRequested ? economyProvider : null;
+                case "load" -> economyRequested ? economy : null;
+                case "isProvidedFor" -> economyRequested;
+                default -> defaultValue(method.getReturnType());
+            };
+        });
+        GlobalRegionScheduler globalScheduler = proxy(GlobalRegionScheduler.class, (p, method, args) -> schedule(method, args, false));
+        RegionScheduler regionScheduler = proxy(RegionScheduler.class, (p, method, args) -> schedule(method, args, false));
+        BukkitScheduler bukkitScheduler = proxy(BukkitScheduler.class,
+                (p, method, args) -> schedule(method, args, method.getName().contains("Asynchronously")));
+
+        this.server = proxy(Server.class, (p, method, args) -> switch (method.getName()) {
+            case "getLogger" -> LOGGER;
+            case "getName" -> "BSHongbao-Sim";
+            case "getVersion", "getBukkitVersion" -> "1.20.1-R0.1-SNAPSHOT";
+            case "getMinecraftVersion" -> "1.20.1";
+            case "getOnlinePlayers", "audiences" -> Collections.unmodifiableCollection(players.values());
+            case "getPlayer", "getPlayerExact" -> findPlayer(args[0]);
+            case "getWorld" -> world;
+            case "getWorlds" -> List.of(world);
+            case "getPluginManager" -> pluginManager;
+            case "getServicesManager" -> servicesManager;
+            case "getScheduler" -> bukkitScheduler;
+            case "getGlobalRegionScheduler" -> globalScheduler;
+            case "getRegionScheduler" -> regionScheduler;
+            case "isPrimaryThread", "isOwnedByCurrentRegion", "isGlobalTickThread" -> isRegionThread();
+            case "getPluginCommand" -> commands.computeIfAbsent((String) args[0], this::createCommand);
+            case "broadcastMessage" -> players.size();
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    Server getServer() {
+        return server;
+    }
+
+    World getWorld() {
+        return world;
+    }
+
+    EntityScheduler getEntityScheduler() {
+        return entityScheduler;
+    }
+
+    /**
+     * 绑定被测插件，插件管理器与命令查询会返回它
+     */
+    void setPlugin(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    void addPlayer(Player player) {
+        players.put(player.getUniqueId(), player);
+    }
+
+    Collection<Player> getPlayers() {
+        return players.values();
+    }
+
+    /**
+     * 获取插件注册的监听器
+     */
+    <T extends Listener> T getListener(Class<T> type) {
+        for (Listener listener : listeners) {
+            if (type.isInstance(listener)) {
+                return type.cast(listener);
+            }
+        }
+        throw new IllegalStateException(type.getSimpleName() + " was not registered");
+    }
+
+    /**
+     * 在区域线程上执行任务
+     */
+    void execute(Runnable task) {
+        region.execute(guard(task));
+    }
+
+    /**
+     * 在区域线程上执行任务并等待结果
+     */
+    <T> T call(Callable<T> task) throws Exception {
+        try {
+            return region.submit(task).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    boolean isRegionThread() {
+        return Thread.currentThread() == regionThread;
+    }
+
+    /**
+     * 调度任务中抛出的异常数（服务器会记录并继续运行，这里同样计数后继续）
+     */
+    long getTaskErrors() {
+        return taskErrors.sum();
+    }
+
+    void shutdown() throws InterruptedException {
+        region.shutdown();
+        async.shutdown();
+        region.awaitTermination(10, TimeUnit.SECONDS);
+        async.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private Object handlePluginManager(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getPlugin" -> "Vault".equals(args[0]) ? vault
+                    : plugin != null && plugin.getName().equals(args[0]) ? plugin : null;
+            case "isPluginEnabled" -> true;
+            case "registerEvents" -> {
+                listeners.add((Listener) args[0]);
+                yield null;
+            }
+            case "disablePlugin" -> throw new IllegalStateException("Plugin disabled itself during the simulation");
+            default -> defaultValue(method.getReturnType());
+        };
+    }
+
+    private Player findPlayer(Object key) {
+        if (key instanceof UUID id) {
+            return players.get(id);
+        }
+        for (Player player : players.values()) {
+            if (player.getName().equalsIgnoreCase((String) key)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    private PluginCommand createCommand(String name) {
+        try {
+            Constructor<PluginCommand> constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(name, plugin);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create command " + name, e);
+        }
+    }
+
+    /**
+     * 统一处理各调度器的方法：第一个 Runnable/Consumer 参数是任务，long 参数依次为延迟与周期（tick）
+     */
+    @SuppressWarnings("unchecked")
+    private Object schedule(Method method, Object[] args, boolean asynchronous) {
+        String name = method.getName();
+        if (name.startsWith("cancel")) {
+            return null;
+        }
+
+        Object task = null;
+        List<Long> ticks = new ArrayList<>(2);
+        for (Object arg : args) {
+            if (task == null && (arg instanceof Runnable || arg instanceof Consumer)) {
+                task = arg;
+            } else if (arg instanceof Long value) {
+                ticks.add(value);
+            }
+        }
+        if (task == null) {
+            throw new UnsupportedOperationException(method.toString());
+        }
+
+        SimulatedTask handle = new SimulatedTask(taskIds.incrementAndGet(), ticks.size() > 1);
+        Object taskProxy = method.getReturnType() == BukkitTask.class
+                ? proxy(BukkitTask.class, handle)
+                : proxy(ScheduledTask.class, handle);
+        Object body = task;
+        Runnable runnable = guard(() -> {
+            if (body instanceof Runnable r) {
+                r.run();
+            } else {
+                ((Consumer<Object>) body).accept(taskProxy);
+            }
+        });
+
+        if (asynchronous && ticks.isEmpty()) {
+            handle.future = async.submit(runnable);
+        } else if (ticks.isEmpty()) {
+            handle.future = region.submit(runnable);
+        } else if (ticks.size() == 1) {
+            handle.future = region.schedule(runnable, Math.max(1L, ticks.get(0)) * TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            handle.future = region.scheduleAtFixedRate(runnable, Math.max(1L, ticks.get(0)) * TICK_MILLIS,
+                    Math.max(1L, ticks.get(1)) * TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        if (method.getReturnType() == boolean.class) {
+            return true;
+        }
+        return method.getReturnType() == void.class ? null : taskProxy;
+    }
+
+    private Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                taskErrors.increment();
+                LOGGER.log(Level.WARNING, "Scheduled task threw an exception", t);
+            }
+        };
+    }
+
+    /**
+     * ScheduledTask / BukkitTask 的共同实现
+     */
+    private final class SimulatedTask implements InvocationHandler {
+        private final int id;
+        private final boolean repeating;
+        private volatile Future<?> future;
+
+        private SimulatedTask(int id, boolean repeating) {
+            this.id = id;
+            this.repeating = repeating;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "cancel" -> {
+                    Future<?> current = future;
+                    if (current != null) {
+                        current.cancel(false);
+                    }
+                    yield defaultValue(method.getReturnType());
+                }
+                case "isCancelled" -> future != null && future.isCancelled();
+                case "isRepeatingTask" -> repeating;
+                case "getTaskId" -> id;
+                case "getOwningPlugin", "getOwner" -> plugin;
+                case "isSync" -> true;
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+    }
+
+    /**
+     * 创建接口代理；Object 的方法按对象身份处理
+     */
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        Object instance = Proxy.newProxyInstance(SimulatedServer.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                        };
+                    }
+                    return handler.invoke(proxy, method, args == null ? new Object[0] : args);
+                });
+        return type.cast(instance);
+    }
+
+    /**
+     * 未模拟的方法按返回类型返回默认值
+     */
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return type == short.class ? (short) 0 : (byte) 0;
+    }
+}